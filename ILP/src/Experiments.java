@@ -1,4 +1,6 @@
 import ilp.PolygonType;
+import ilp.ThreadBudget;
+import io.LayoutCache;
 import io.SolutionWriter;
 import io.StatementEntityReader;
 import io.StatsRecorder;
@@ -7,12 +9,29 @@ import model.StatementEntityInstance;
 
 import java.awt.*;
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Experiments {
+    // Number of components solved at the same time, and the number of threads all Gurobi models share
+    private static final int COMPONENT_WORKERS = 1;
+    private static final int GUROBI_THREADS = Runtime.getRuntime().availableProcessors();
+    // Directory in which component layouts are kept between reruns, or null to always solve every component.
+    // Note that with a cache the recorded layout times only cover the components that were actually solved.
+    private static final String LAYOUT_CACHE_DIR = null;
+    private static final long LAYOUT_CACHE_BYTES = 1024L * 1024 * 1024;
+    // Start component models from a heuristic layout; off by default, so the results stay comparable with earlier
+    // runs of cold models
+    private static final boolean WARM_START = false;
+    // Cluster for the RectEuler split with cluster_split.py (requires its venv) instead of the Java implementation.
+    // The two use different random number generators, so the Java port gives other splits than earlier results.
+    private static final boolean PYTHON_CLUSTER_SPLIT = true;
+
     public static void main(String[] args) {
+        ThreadBudget.configure(GUROBI_THREADS);
+
         String inputFolder = "experiment_data/";
         String outputFolder = "experiment_solutions/";
         var statsFile = new File("experiment_statistics.csv");
@@ -27,6 +46,9 @@ public class Experiments {
         Arrays.sort(files, Comparator.comparingLong(File::length));
 
         try {
+            LayoutCache layoutCache = LAYOUT_CACHE_DIR == null ? null
+                    : new LayoutCache(Paths.get(LAYOUT_CACHE_DIR), LAYOUT_CACHE_BYTES);
+
             for (boolean useRectEulerSplit : new boolean[]{false, true}) {
                 for (File file : files) {
                     var inputName = file.getName().split("\\.(?=[^\\.]+$)")[0];
@@ -83,7 +105,12 @@ public class Experiments {
 
                             String[] runParams = {inputName, useRectEulerSplit ? "RectEuler" : "BlockSets", polygonType.name()};
                             StatsRecorder stats = new StatsRecorder(instance, runParams);
-                            Orchestrator orchestrator = new Orchestrator(5, 1.0 / 3, 60, 60);
+                            Orchestrator orchestrator = new Orchestrator(5, 1.0 / 3, 60, 60, COMPONENT_WORKERS);
+                            if (layoutCache != null) {
+                                orchestrator.setLayoutCache(layoutCache);
+                            }
+                            orchestrator.setWarmStart(WARM_START);
+                            orchestrator.setPythonClusterSplit(PYTHON_CLUSTER_SPLIT);
                             PositionedSolution finalLayout = orchestrator.runBlockSets(instance, polygonType, stats, useRectEulerSplit, mosaicSetsPerimeter);
 
                             // Write solution stats to file
@@ -2,18 +2,30 @@ import java.io.*;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import com.gurobi.gurobi.GRBException;
 
 import ilp.PolygonType;
+import ilp.ThreadBudget;
 import ilp.constraints.*;
 import ilp.objective.CompactSquareTopLeft;
 import ilp.objective.ObjectiveModule;
 import ilp.objective.PolygonAreaDimensionsComplexity;
+import ilp.solvers.CachingSolver;
+import ilp.solvers.HeuristicSolver;
 import ilp.solvers.MosaicSetsSolver;
+import ilp.solvers.HierarchicalArranger;
+import ilp.solvers.PackingArranger;
 import ilp.solvers.SolutionPositioner;
 import ilp.solvers.OrthoconvexSolver;
 import ilp.solvers.Solver;
+import io.LayoutCache;
 import io.SolutionWriter;
 import io.StatementEntityReader;
 import io.StatsRecorder;
@@ -22,6 +34,7 @@ import model.Solution;
 import model.StatementEntityInstance;
 import split.ClusterSplit;
 import split.GreedySplit;
+import split.IncrementalSplit;
 
 public class Orchestrator {
 
@@ -30,16 +43,118 @@ public class Orchestrator {
                                      // sizes produced from the split
     private final double componentLayoutTimeLimit;
     private final double componentArrangementTimeLimit;
+    private final int componentWorkers; // Number of components that are solved concurrently
+    private LayoutCache layoutCache = null; // Previously computed component layouts, if set
+    private boolean heuristicLayouts = false; // Lay out components with the heuristic instead of Gurobi
+    private boolean warmStart = false; // Start component models from a heuristic layout
+    private boolean pythonClusterSplit = true; // Run the RectEuler split with cluster_split.py instead of in Java
+    private boolean heuristicArrangement = false; // Arrange the components with the packing heuristic instead of Gurobi
+    private boolean aggregatedArrangement = false; // Use the aggregated formulation of the arrangement ILP
+    private int arrangementGroupSize = 0; // Arrange more components than this in groups (0: never)
+    private boolean assignmentPlacement = false; // Place statements with cell assignment binaries instead of big-M pairs
+    private boolean lazyConstraints = false; // Add pairwise constraints only once an incumbent violates them
+    private boolean phaseConvexity = false; // Keep polygons vertically convex with phase binaries instead of row triples
+    private PreviousRun previousRun = null; // Components of the last run, for runBlockSetsIncremental
 
     public final List<Solution> solutions = new ArrayList<>();
     public final Set<Integer> deletedNodes = new HashSet<>();
     public final Map<Integer, int[]> deletedPositions = new HashMap<>(); // fill later if needed
 
+    private static final Object PYTHON_SPLIT_LOCK = new Object();
+
+    // A component that still has to be solved, together with its position in the split tree:
+    // the i-th root has path {i} and the i-th part of a split gets the path of its parent followed by i.
+    private record ComponentTask(StatementEntityInstance inst, int[] path) {
+        // Breadth-first order: shallower components first, siblings in the order the split produced them
+        static final Comparator<ComponentTask> SPLIT_TREE_ORDER = Comparator
+                .comparingInt((ComponentTask t) -> t.path().length)
+                .thenComparing(ComponentTask::path, Arrays::compare);
+
+        int[] childPath(int i) {
+            int[] child = Arrays.copyOf(path, path.length + 1);
+            child[path.length] = i;
+            return child;
+        }
+    }
+
+    private record ComponentResult(ComponentTask task, Solution solution, List<StatementEntityInstance> parts,
+                                   List<Integer> deletedEntities, double layoutTime, double splitTime) {
+    }
+
+    // The unpositioned component layouts of a run and the variant and position the arrangement chose for each of them
+    private record PreviousRun(PolygonType polygonType, List<Solution> componentLayouts, int[][] placements) {
+    }
+
     public Orchestrator(int splitK, double splitRatio, double componentLayoutTimeLimit, double componentArrangementTimeLimit) {
+        this(splitK, splitRatio, componentLayoutTimeLimit, componentArrangementTimeLimit, 1);
+    }
+
+    public Orchestrator(int splitK, double splitRatio, double componentLayoutTimeLimit, double componentArrangementTimeLimit,
+                        int componentWorkers) {
+        if (componentWorkers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed to solve components, got " + componentWorkers);
+        }
         this.splitK = splitK;
         this.splitRatio = splitRatio;
         this.componentLayoutTimeLimit = componentLayoutTimeLimit;
         this.componentArrangementTimeLimit = componentArrangementTimeLimit;
+        this.componentWorkers = componentWorkers;
+    }
+
+    // Reuse component layouts from the given cache, and store new ones in it
+    public void setLayoutCache(LayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
+    // Lay out components with HeuristicSolver instead of the ILP, so no Gurobi license is needed for them
+    public void setHeuristicLayouts(boolean heuristicLayouts) {
+        this.heuristicLayouts = heuristicLayouts;
+    }
+
+    // Start the component models from a heuristic layout, or from a cold model (default)
+    public void setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    // Cluster the statements for the RectEuler split with the original Python script (default, needs its venv), or
+    // with the Java port in ClusterSplit.split, which uses a different random number generator and so finds other
+    // clusters
+    public void setPythonClusterSplit(boolean pythonClusterSplit) {
+        this.pythonClusterSplit = pythonClusterSplit;
+    }
+
+    // Arrange the components with the packing heuristic only, instead of with the arrangement ILP
+    public void setHeuristicArrangement(boolean heuristicArrangement) {
+        this.heuristicArrangement = heuristicArrangement;
+    }
+
+    // Arrange the components with the formulation of the arrangement ILP on cell occupancy variables
+    public void setAggregatedArrangement(boolean aggregatedArrangement) {
+        this.aggregatedArrangement = aggregatedArrangement;
+    }
+
+    // Arrange more than this many components hierarchically, in groups of at most this size (0 to never do so, the
+    // default; HierarchicalArranger.DEFAULT_GROUP_SIZE works well)
+    public void setArrangementGroupSize(int arrangementGroupSize) {
+        this.arrangementGroupSize = arrangementGroupSize;
+    }
+
+    // Place the statements in the component models with a binary per statement and cell (A1, and A2 for rectangles)
+    // instead of with big-M disjunctions per pair of statements (C1, and H1 and H2 for rectangles)
+    public void setAssignmentPlacement(boolean assignmentPlacement) {
+        this.assignmentPlacement = assignmentPlacement;
+    }
+
+    // Add the pairwise constraints of the component models (C1, H6 and P6) from a callback, once an incumbent
+    // violates them, instead of all of them up front
+    public void setLazyConstraints(boolean lazyConstraints) {
+        this.lazyConstraints = lazyConstraints;
+    }
+
+    // Keep the polygons of the component models vertically convex with a phase binary per pair of adjacent rows (P3b)
+    // instead of with constraints for every triple of rows (P3)
+    public void setPhaseConvexity(boolean phaseConvexity) {
+        this.phaseConvexity = phaseConvexity;
     }
 
     public List<Solution> solveWithSplits(Solver solver, StatementEntityInstance root,
@@ -47,45 +162,122 @@ public class Orchestrator {
         // Store solved instances to record stats
         ArrayList<StatementEntityInstance> solvedInstances = new ArrayList<>();
 
-        Deque<StatementEntityInstance> queue = new ArrayDeque<>();
-        queue.add(root);
-
-        while (!queue.isEmpty()) {
-            StatementEntityInstance inst = queue.removeFirst();
-            long beforeSolve = System.nanoTime();
-            int dimension = (int) (Math.ceil(Math.sqrt(inst.numberOfStatements)) + 1);
-            if (polygonType == PolygonType.Nabla) {
-                dimension += 1;
-            } else if (polygonType == PolygonType.Gamma) {
-                dimension += 2;
-            } else if (polygonType == PolygonType.Rectangle) {
-                dimension += 3;
-            }
-            Solution sol = solver.solve(inst, this.componentLayoutTimeLimit, dimension);
-            long afterSolve = System.nanoTime();
-            double layoutTimeS = (afterSolve - beforeSolve) / 1_000_000_000.0;
-            stats.totalLayoutTime += layoutTimeS;
+        for (ComponentResult result : solveAll(solver, List.of(root), rectEulerSplit, stats, polygonType)) {
+            solutions.add(result.solution());
+
+            // Record shape stats for this solution
+            stats.updateShapeStatsSingleComponent(result.solution());
+
+            // Add solved instance to global solved list
+            solvedInstances.add(result.task().inst());
+        }
+
+        // Record final component stats
+        stats.updateSplitComponentStats(solvedInstances);
 
-            if (sol != null) {
-                solutions.add(sol);
+        return solutions;
+    }
 
-                // Record shape stats for this solution
-                stats.updateShapeStatsSingleComponent(sol);
+    // Solves the given instances, splitting them where needed, and returns the solved components in split tree order
+    private List<ComponentResult> solveAll(Solver solver, List<StatementEntityInstance> roots, boolean rectEulerSplit,
+                                           StatsRecorder stats, PolygonType polygonType) throws Exception, GRBException {
+        // Components are independent, so they are solved on a bounded pool of workers. The pool's queue is the
+        // shared work queue: whenever a component has to be split, its parts are submitted to it again.
+        ExecutorService workers = Executors.newFixedThreadPool(componentWorkers, new ThreadFactory() {
+            private int created = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "component-solver-" + (++created));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        CompletionService<ComponentResult> queue = new ExecutorCompletionService<>(workers);
 
-                // Add solved instance to global solved list
-                solvedInstances.add(inst);
+        try {
+            int pending = 0;
+            for (int i = 0; i < roots.size(); i++) {
+                ComponentTask rootTask = new ComponentTask(roots.get(i), new int[]{i});
+                queue.submit(() -> solveComponent(solver, rootTask, rectEulerSplit, polygonType));
+                pending++;
+            }
 
-                continue;
+            List<ComponentResult> solved = new ArrayList<>();
+            while (pending > 0) {
+                ComponentResult result;
+                try {
+                    result = queue.take().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+                pending--;
+
+                stats.totalLayoutTime += result.layoutTime();
+                stats.totalSplitTime += result.splitTime();
+                // Record deletions
+                deletedNodes.addAll(result.deletedEntities());
+
+                if (result.solution() != null) {
+                    solved.add(result);
+                    continue;
+                }
+
+                // Enqueue parts
+                for (int i = 0; i < result.parts().size(); i++) {
+                    ComponentTask part = new ComponentTask(result.parts().get(i), result.task().childPath(i));
+                    queue.submit(() -> solveComponent(solver, part, rectEulerSplit, polygonType));
+                    pending++;
+                }
             }
 
-            // Too large or no optimal -> split
-            List<StatementEntityInstance> parts;
+            // Components finish in whatever order the workers happen to complete them. Sorting on the position in
+            // the split tree gives the same (breadth-first) order as solving them one at a time.
+            solved.sort(Comparator.comparing(ComponentResult::task, ComponentTask.SPLIT_TREE_ORDER));
+            return solved;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
 
-            // Record start time
-            long beforeSplit = System.nanoTime();
-            if (rectEulerSplit) {
-                ClusterSplit splitter = new ClusterSplit(inst);
-                String os = System.getProperty("os.name").toLowerCase();
+    // Solves a single component on a worker thread. If it is too large or no solution is found, the component is
+    // split instead and the parts are returned, so the caller can put them back on the queue.
+    private ComponentResult solveComponent(Solver solver, ComponentTask task, boolean rectEulerSplit,
+                                           PolygonType polygonType) throws Exception, GRBException {
+        StatementEntityInstance inst = task.inst();
+
+        long beforeSolve = System.nanoTime();
+        int dimension = (int) (Math.ceil(Math.sqrt(inst.numberOfStatements)) + 1);
+        if (polygonType == PolygonType.Nabla) {
+            dimension += 1;
+        } else if (polygonType == PolygonType.Gamma) {
+            dimension += 2;
+        } else if (polygonType == PolygonType.Rectangle) {
+            dimension += 3;
+        }
+        Solution sol = solver.solve(inst, this.componentLayoutTimeLimit, dimension);
+        long afterSolve = System.nanoTime();
+        double layoutTimeS = (afterSolve - beforeSolve) / 1_000_000_000.0;
+
+        if (sol != null) {
+            return new ComponentResult(task, sol, List.of(), List.of(), layoutTimeS, 0);
+        }
+
+        // Too large or no optimal -> split
+        List<StatementEntityInstance> parts;
+        List<Integer> deletedEntities = List.of();
+
+        // Record start time
+        long beforeSplit = System.nanoTime();
+        if (rectEulerSplit && pythonClusterSplit) {
+            ClusterSplit splitter = new ClusterSplit(inst);
+            String os = System.getProperty("os.name").toLowerCase();
+            // The script exchanges its input and output through fixed files in its working directory,
+            // so only one component can be split with it at a time
+            synchronized (PYTHON_SPLIT_LOCK) {
                 parts = splitter.splitWithPython(
                         os.contains("win") ?
                                 Paths.get("ILP", "src", "split", "RectEuler-Split", ".venv", "Scripts", "python.exe") :
@@ -96,33 +288,137 @@ public class Orchestrator {
                         2,
                         0,
                         5);
-            } else {
-                GreedySplit splitInst = new GreedySplit(inst);
-                parts = splitInst.findSplit(splitK, splitRatio);
-                // Record deletions
-                deletedNodes.addAll(splitInst.deletedEntities);
             }
-            // Measure total runtime for this split
-            long afterSplit = System.nanoTime();
-            double splitTimeS = (afterSplit - beforeSplit) / 1_000_000_000.0;
-            stats.totalSplitTime += splitTimeS;
+        } else if (rectEulerSplit) {
+            parts = new ClusterSplit(inst).split(2, 0, 5);
+        } else {
+            GreedySplit splitInst = new GreedySplit(inst);
+            parts = splitInst.findSplit(splitK, splitRatio);
+            deletedEntities = new ArrayList<>(splitInst.deletedEntities);
+        }
+        // Measure total runtime for this split
+        long afterSplit = System.nanoTime();
+        double splitTimeS = (afterSplit - beforeSplit) / 1_000_000_000.0;
+
+        return new ComponentResult(task, null, parts, deletedEntities, layoutTimeS, splitTimeS);
+    }
+
+    public PositionedSolution runBlockSets(StatementEntityInstance instance, PolygonType polygonType,
+                                           StatsRecorder stats, boolean useRectEulerSplit, boolean mosaicSetsPerimeter) {
+        Solver solver = createSolver(polygonType, mosaicSetsPerimeter, stats);
+        stats.warmStart = warmStart && !heuristicLayouts;
+
+        try {
+            List<Solution> sols;
+            sols = solveWithSplits(solver, instance, useRectEulerSplit, stats, polygonType);
+            sols.removeIf(solution -> solution.getEntityIds().isEmpty());
+            // The positioner replaces the entries of the list by positioned copies
+            List<Solution> componentLayouts = new ArrayList<>(sols);
 
+            long beforeArrange = System.nanoTime();
+            PositionedSolution finalLayout = arrange((ArrayList<Solution>) sols, polygonType, null, stats);
+            long afterArrange = System.nanoTime();
+            double arrangeTimeS = (afterArrange - beforeArrange) / 1_000_000_000.0;
+            stats.totalArrangeTime += arrangeTimeS;
 
-            // Enqueue parts
-            queue.addAll(parts);
+            stats.updateShapeStatsFinalLayout(finalLayout);
+
+            previousRun = new PreviousRun(polygonType, componentLayouts, finalLayout.placements);
+            return finalLayout;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return PositionedSolution.EMPTY;
         }
+    }
 
-        // Record final component stats
-        stats.updateSplitComponentStats(solvedInstances);
+    // Lays out an edited version of the instance of the previous run. Components of the previous split whose
+    // statements and memberships did not change keep their layout, and the arrangement starts from their previous
+    // positions; only the changed components are solved (and split) again. Without a previous run of the same
+    // polygon type this is the same as runBlockSets.
+    public PositionedSolution runBlockSetsIncremental(StatementEntityInstance instance, PolygonType polygonType,
+                                                      StatsRecorder stats, boolean useRectEulerSplit, boolean mosaicSetsPerimeter) {
+        if (previousRun == null || previousRun.polygonType() != polygonType) {
+            return runBlockSets(instance, polygonType, stats, useRectEulerSplit, mosaicSetsPerimeter);
+        }
 
-        return solutions;
+        Solver solver = createSolver(polygonType, mosaicSetsPerimeter, stats);
+        stats.warmStart = warmStart && !heuristicLayouts;
+
+        try {
+            List<StatementEntityInstance> previousComponents = new ArrayList<>();
+            for (Solution layout : previousRun.componentLayouts()) {
+                previousComponents.add(layout.getInstance());
+            }
+            List<IncrementalSplit.ComponentUpdate> updates = IncrementalSplit.update(previousComponents, instance);
+
+            ArrayList<Solution> sols = new ArrayList<>();
+            ArrayList<int[]> previousPlacements = new ArrayList<>();
+            ArrayList<StatementEntityInstance> solvedInstances = new ArrayList<>();
+            List<StatementEntityInstance> changed = new ArrayList<>();
+            for (IncrementalSplit.ComponentUpdate update : updates) {
+                if (!update.unchanged()) {
+                    changed.add(update.instance());
+                    continue;
+                }
+                Solution layout = previousRun.componentLayouts().get(update.previousComponent())
+                        .copyFor(update.instance());
+                sols.add(layout);
+                previousPlacements.add(previousRun.placements() == null ? null : previousRun.placements()[update.previousComponent()]);
+                stats.updateShapeStatsSingleComponent(layout);
+                solvedInstances.add(update.instance());
+            }
+
+            for (ComponentResult result : solveAll(solver, changed, useRectEulerSplit, stats, polygonType)) {
+                if (result.solution().getEntityIds().isEmpty()) continue;
+                sols.add(result.solution());
+                previousPlacements.add(null);
+                stats.updateShapeStatsSingleComponent(result.solution());
+                solvedInstances.add(result.task().inst());
+            }
+            stats.updateSplitComponentStats(solvedInstances);
+
+            solutions.clear();
+            solutions.addAll(sols);
+            List<Solution> componentLayouts = new ArrayList<>(sols);
+
+            long beforeArrange = System.nanoTime();
+            PositionedSolution finalLayout = arrange(sols, polygonType, previousPlacements.toArray(new int[0][]), stats);
+            long afterArrange = System.nanoTime();
+            double arrangeTimeS = (afterArrange - beforeArrange) / 1_000_000_000.0;
+            stats.totalArrangeTime += arrangeTimeS;
+
+            stats.updateShapeStatsFinalLayout(finalLayout);
+
+            previousRun = new PreviousRun(polygonType, componentLayouts, finalLayout.placements);
+            return finalLayout;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return PositionedSolution.EMPTY;
+        }
     }
 
-    public PositionedSolution runBlockSets(StatementEntityInstance instance, PolygonType polygonType,
-                                           StatsRecorder stats, boolean useRectEulerSplit, boolean mosaicSetsPerimeter) {
+    private PositionedSolution arrange(ArrayList<Solution> components, PolygonType polygonType, int[][] warmStart,
+                                       StatsRecorder stats) {
+        if (heuristicArrangement) {
+            return PackingArranger.arrange(components, polygonType);
+        }
+        // The groups are formed anew, so previous placements do not apply to them
+        if (arrangementGroupSize > 0 && components.size() > arrangementGroupSize) {
+            return HierarchicalArranger.arrange(components, polygonType, componentArrangementTimeLimit,
+                    arrangementGroupSize, aggregatedArrangement, stats);
+        }
+        return SolutionPositioner.computeCompleteSolution(components, polygonType, componentArrangementTimeLimit, warmStart,
+                aggregatedArrangement, stats);
+    }
+
+    private Solver createSolver(PolygonType polygonType, boolean mosaicSetsPerimeter, StatsRecorder stats) {
         List<ConstraintModule> constraints = null;
         ObjectiveModule objective = null;
         int solutionType = -1;
+        ConstraintModule distinctStatements = assignmentPlacement ? new A1StatementCells()
+                : new C1StatementsDistinctCoordinates();
+        ConstraintModule verticalConvexity = phaseConvexity ? new P3bVerticalConvexityPhases()
+                : new P3VerticalConvexity();
 
         switch (polygonType) {
             case Arbitrary:
@@ -133,7 +429,7 @@ public class Orchestrator {
                         new P00DefineRowSpans(),
                         new P1ConsecutiveEntityRows(),
                         new P2ConnectedEntityRows(),
-                        new P3VerticalConvexity(),
+                        verticalConvexity,
                         new P4StatementsInsideEntities(),
                         new P5OutsideNonMembers(),
                         new P6DisjointEntitiesDoNotOverlap(),
@@ -141,7 +437,7 @@ public class Orchestrator {
                         new P8MaxWidth(),
                         new P9MaxHeight(),
                         new P10StatementIsOnRowBooleans(),
-                        new C1StatementsDistinctCoordinates());
+                        distinctStatements);
                 objective = new PolygonAreaDimensionsComplexity();
                 solutionType = 1;
                 break;
@@ -151,7 +447,7 @@ public class Orchestrator {
                         new P00DefineRowSpans(),
                         new P1ConsecutiveEntityRows(),
                         new P2ConnectedEntityRows(),
-                        new P3VerticalConvexity(),
+                        verticalConvexity,
                         new P4StatementsInsideEntities(),
                         new P5OutsideNonMembers(),
                         new P6DisjointEntitiesDoNotOverlap(),
@@ -160,7 +456,7 @@ public class Orchestrator {
                         new P9MaxHeight(),
                         new P10StatementIsOnRowBooleans(),
                         new P13aNestedRowBoundsNonIncreasing(),
-                        new C1StatementsDistinctCoordinates());
+                        distinctStatements);
                 objective = new PolygonAreaDimensionsComplexity();
                 solutionType = 1;
                 break;
@@ -170,7 +466,7 @@ public class Orchestrator {
                         new P00DefineRowSpans(),
                         new P1ConsecutiveEntityRows(),
                         new P2ConnectedEntityRows(),
-                        new P3VerticalConvexity(),
+                        verticalConvexity,
                         new P4StatementsInsideEntities(),
                         new P5OutsideNonMembers(),
                         new P6DisjointEntitiesDoNotOverlap(),
@@ -180,11 +476,26 @@ public class Orchestrator {
                         new P10StatementIsOnRowBooleans(),
                         new P11EqualRowStart(),
                         new P13aNestedRowBoundsNonIncreasing(),
-                        new C1StatementsDistinctCoordinates());
+                        distinctStatements);
                 objective = new PolygonAreaDimensionsComplexity();
                 solutionType = 1;
                 break;
             case Rectangle:
+                if (assignmentPlacement) {
+                    constraints = List.of(
+                            new C00NonNegativity(),
+                            new C01UpperBound(),
+                            new A1StatementCells(),
+                            new A2EntityCellCoverage(),
+                            new H6DisjointEntitiesDoNotOverlap(),
+                            new C2SingleCellEntities(),
+                            new H8MaxWidth(),
+                            new H9MaxHeight(),
+                            new H10Squareness());
+                    solutionType = 0;
+                    objective = new CompactSquareTopLeft();
+                    break;
+                }
                 constraints = List.of(
                         new C00NonNegativity(),
                         new C01UpperBound(),
@@ -202,41 +513,131 @@ public class Orchestrator {
         }
 
         Solver solver;
-        if (polygonType == PolygonType.Arbitrary) {
-            solver = new MosaicSetsSolver(0, 0, false, mosaicSetsPerimeter);
+        if (heuristicLayouts) {
+            solver = new HeuristicSolver(polygonType);
+        } else if (polygonType == PolygonType.Arbitrary) {
+            solver = new MosaicSetsSolver(0, 0, false, mosaicSetsPerimeter, warmStart, stats);
         } else {
-            solver = new OrthoconvexSolver(constraints, objective, solutionType);
+            solver = new OrthoconvexSolver(constraints, objective, solutionType, warmStart ? polygonType : null, stats,
+                    lazyConstraints);
         }
-
-        try {
-            List<Solution> sols;
-            sols = solveWithSplits(solver, instance, useRectEulerSplit, stats, polygonType);
-            sols.removeIf(solution -> solution.getEntityIds().isEmpty());
-
-            long beforeArrange = System.nanoTime();
-            PositionedSolution finalLayout = SolutionPositioner.computeCompleteSolution((ArrayList<Solution>) sols, polygonType, componentArrangementTimeLimit);
-            long afterArrange = System.nanoTime();
-            double arrangeTimeS = (afterArrange - beforeArrange) / 1_000_000_000.0;
-            stats.totalArrangeTime += arrangeTimeS;
-
-            stats.updateShapeStatsFinalLayout(finalLayout);
-
-            return finalLayout;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return PositionedSolution.EMPTY;
+        if (layoutCache != null) {
+            solver = new CachingSolver(solver, layoutCache, polygonType);
         }
+        return solver;
     }
 
     public static void main(String[] args) {
-        if (args.length < 2 || args.length > 6) {
-            System.out.println("Call this program with the following arguments: dataName outputName statsName structure layoutTimeLimit arrangementTimeLimit.\n" +
+        if (args.length < 6) {
+            System.out.println("Call this program with the following arguments: dataName outputName statsName structure layoutTimeLimit arrangementTimeLimit [options].\n" +
                     "Time limits are in seconds. The structure parameter has one of the following values.\n" +
                     "0: arbitrary polygons\n" +
                     "1: orthoconvex polygons\n" +
                     "2: nabla-shapes (top-aligned)\n" +
                     "3: gamma-shapes (top- and left-aligned)\n" +
-                    "4: rectangles");
+                    "4: rectangles\n" +
+                    "The following options can be given after the other arguments.\n" +
+                    "--workers=N: number of components that are solved concurrently (default 1)\n" +
+                    "--threads=N: number of threads all Gurobi models together may use (default: all processors)\n" +
+                    "--cache=DIR: directory in which component layouts are kept to be reused by later runs\n" +
+                    "--cacheSizeMB=N: size after which the least recently used layouts are removed from the cache (default 256)\n" +
+                    "--solver=ilp|heuristic: lay out components with Gurobi (default) or with a heuristic that needs no license (structures 1-4)\n" +
+                    "--warmStart=true|false: start the Gurobi models of components from a heuristic layout (default false)\n" +
+                    "--arrangement=ilp|aggregated|heuristic: arrange the components with Gurobi (default), with Gurobi on a compact formulation or with a packing heuristic\n" +
+                    "--arrangementGroupSize=N: arrange more than N components in groups of at most N, then the groups (default 0: never, 12 works well)\n" +
+                    "--placement=pairwise|assignment: keep statements apart with big-M constraints per pair (default) or assign them to cells with a binary per statement and cell (experimental, see benchmarks/StatementPlacementBenchmark.md)\n" +
+                    "--lazyConstraints=true|false: add the constraints that keep pairs of statements and entities apart only once a solution violates them (default false)\n" +
+                    "--convexity=triples|phases: keep polygons vertically convex with constraints per triple of rows (default) or with a binary per pair of adjacent rows (structures 1-3)\n" +
+                    "--clusterSplit=python|java: split components by clustering their statements as RectEuler does, with cluster_split.py (needs its venv) or in Java, instead of with the greedy split (default)");
+            return;
+        }
+
+        Map<String, String> options = new HashMap<>();
+        for (int i = 6; i < args.length; i++) {
+            if (!args[i].startsWith("--") || !args[i].contains("=")) {
+                System.out.println("Options should have the form --name=value, got " + args[i] + ".\nRun the program without arguments for more info.");
+                return;
+            }
+            String[] option = args[i].substring(2).split("=", 2);
+            options.put(option[0], option[1]);
+        }
+
+        int componentWorkers;
+        try {
+            componentWorkers = Integer.parseInt(options.getOrDefault("workers", "1"));
+            if (componentWorkers < 1) throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            System.out.println("The --workers option should be a positive integer.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        try {
+            int gurobiThreads = Integer.parseInt(options.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            if (gurobiThreads < 1) throw new NumberFormatException();
+            ThreadBudget.configure(gurobiThreads);
+        } catch (NumberFormatException e) {
+            System.out.println("The --threads option should be a positive integer.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        long cacheSizeMB;
+        try {
+            cacheSizeMB = Long.parseLong(options.getOrDefault("cacheSizeMB", "256"));
+            if (cacheSizeMB < 1 || cacheSizeMB > Long.MAX_VALUE / (1024 * 1024)) throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            System.out.println("The --cacheSizeMB option should be a positive integer.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        String solverName = options.getOrDefault("solver", "ilp");
+        if (!solverName.equals("ilp") && !solverName.equals("heuristic")) {
+            System.out.println("The --solver option should be ilp or heuristic.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        String warmStartOption = options.getOrDefault("warmStart", "false");
+        if (!warmStartOption.equals("true") && !warmStartOption.equals("false")) {
+            System.out.println("The --warmStart option should be true or false.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        String arrangement = options.getOrDefault("arrangement", "ilp");
+        if (!arrangement.equals("ilp") && !arrangement.equals("aggregated") && !arrangement.equals("heuristic")) {
+            System.out.println("The --arrangement option should be ilp, aggregated or heuristic.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        int arrangementGroupSize;
+        try {
+            arrangementGroupSize = Integer.parseInt(options.getOrDefault("arrangementGroupSize", "0"));
+            if (arrangementGroupSize < 0 || arrangementGroupSize == 1) throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            System.out.println("The --arrangementGroupSize option should be 0 or an integer of at least 2.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        String placement = options.getOrDefault("placement", "pairwise");
+        if (!placement.equals("pairwise") && !placement.equals("assignment")) {
+            System.out.println("The --placement option should be pairwise or assignment.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        String lazyConstraintsOption = options.getOrDefault("lazyConstraints", "false");
+        if (!lazyConstraintsOption.equals("true") && !lazyConstraintsOption.equals("false")) {
+            System.out.println("The --lazyConstraints option should be true or false.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        String convexity = options.getOrDefault("convexity", "triples");
+        if (!convexity.equals("triples") && !convexity.equals("phases")) {
+            System.out.println("The --convexity option should be triples or phases.\nRun the program without arguments for more info.");
+            return;
+        }
+
+        String clusterSplit = options.get("clusterSplit");
+        if (clusterSplit != null && !clusterSplit.equals("python") && !clusterSplit.equals("java")) {
+            System.out.println("The --clusterSplit option should be python or java.\nRun the program without arguments for more info.");
             return;
         }
 
@@ -279,6 +680,11 @@ public class Orchestrator {
             return;
         }
 
+        if (solverName.equals("heuristic") && polygonType == PolygonType.Arbitrary) {
+            System.out.println("The heuristic solver does not support arbitrary polygons, use a structure between 1 and 4.\nRun the program without arguments for more info.");
+            return;
+        }
+
         try {
             componentLayoutTimeLimit = Integer.parseInt(args[4]);
             componentArrangementTimeLimit = Integer.parseInt(args[5]);
@@ -295,8 +701,20 @@ public class Orchestrator {
             String[] runParams = {inputName, "BlockSets", polygonType.name()};
             StatsRecorder stats = new StatsRecorder(instance, runParams);
 
-            Orchestrator orchestrator = new Orchestrator(5, 1.0 / 3, componentLayoutTimeLimit, componentArrangementTimeLimit);
-            PositionedSolution finalLayout = orchestrator.runBlockSets(instance, polygonType, stats, false, false);
+            Orchestrator orchestrator = new Orchestrator(5, 1.0 / 3, componentLayoutTimeLimit, componentArrangementTimeLimit, componentWorkers);
+            if (options.containsKey("cache")) {
+                orchestrator.setLayoutCache(new LayoutCache(Paths.get(options.get("cache")), cacheSizeMB * 1024 * 1024));
+            }
+            orchestrator.setHeuristicLayouts(solverName.equals("heuristic"));
+            orchestrator.setWarmStart(Boolean.parseBoolean(warmStartOption));
+            orchestrator.setHeuristicArrangement(arrangement.equals("heuristic"));
+            orchestrator.setAggregatedArrangement(arrangement.equals("aggregated"));
+            orchestrator.setArrangementGroupSize(arrangementGroupSize);
+            orchestrator.setAssignmentPlacement(placement.equals("assignment"));
+            orchestrator.setLazyConstraints(Boolean.parseBoolean(lazyConstraintsOption));
+            orchestrator.setPhaseConvexity(convexity.equals("phases"));
+            orchestrator.setPythonClusterSplit(!"java".equals(clusterSplit));
+            PositionedSolution finalLayout = orchestrator.runBlockSets(instance, polygonType, stats, clusterSplit != null, false);
 
             // Write solution stats to file
             stats.appendToCsv(statsFile);
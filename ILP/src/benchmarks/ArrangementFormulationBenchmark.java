@@ -0,0 +1,94 @@
+package benchmarks;
+
+import ilp.EnvPool;
+import ilp.PolygonType;
+import ilp.solvers.HeuristicSolver;
+import ilp.solvers.SolutionPositioner;
+import io.StatementEntityReader;
+import io.StatsRecorder;
+import model.PositionedSolution;
+import model.Solution;
+import model.StatementEntityInstance;
+import split.GreedySplit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Compares the size of the arrangement model and the time until it is solved to optimality for the formulation with
+// bounding box constraints per (cell, placement) pair and for the aggregated formulation on cell occupancy. The
+// components are laid out with the heuristic and split as the Orchestrator does, so no layout ILPs are solved.
+// Run from the repository root: java benchmarks.ArrangementFormulationBenchmark [timeLimit]
+public class ArrangementFormulationBenchmark {
+    private static final String INPUT_FOLDER = "experiment_data/";
+    private static final PolygonType[] POLYGON_TYPES = {PolygonType.Orthoconvex, PolygonType.Rectangle};
+    // Split parameters of the Orchestrator in the experiments
+    private static final int SPLIT_K = 5;
+    private static final double SPLIT_RATIO = 1.0 / 3;
+    private static final double LAYOUT_TIME_LIMIT = 0.2;
+
+    public static void main(String[] args) throws Exception {
+        double timeLimit = args.length > 0 ? Double.parseDouble(args[0]) : 60;
+
+        File[] files = new File(INPUT_FOLDER).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            System.out.println("No instances found in " + INPUT_FOLDER);
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::length));
+
+        List<String> rows = new ArrayList<>();
+        for (File file : files) {
+            var name = file.getName().split("\\.(?=[^\\.]+$)")[0];
+            for (PolygonType polygonType : POLYGON_TYPES) {
+                StatementEntityInstance instance = StatementEntityReader.readFromFile(file.getPath());
+                List<Solution> components = layOut(instance, polygonType);
+
+                for (boolean aggregated : new boolean[]{false, true}) {
+                    StatsRecorder stats = new StatsRecorder(instance, new String[]{name, "BlockSets", polygonType.name()});
+                    long start = System.nanoTime();
+                    PositionedSolution layout = SolutionPositioner.computeCompleteSolution(new ArrayList<>(components),
+                            polygonType, timeLimit, null, aggregated, stats);
+                    double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+                    rows.add(String.format("%-16s %-12s %5d %-10s %9d %9d %10d %9.2f %7s %9s", name, polygonType.name(),
+                            components.size(), aggregated ? "aggregated" : "cells", stats.arrangementVars,
+                            stats.arrangementConstrs, stats.arrangementNonZeros, seconds, stats.arrangementOptimal,
+                            layout == null ? "-" : layout.width + "x" + layout.height));
+                }
+            }
+        }
+
+        System.out.printf("%-16s %-12s %5s %-10s %9s %9s %10s %9s %7s %9s%n", "instance", "shape", "comps",
+                "model", "vars", "constrs", "nonzeros", "time (s)", "optimal", "box");
+        for (String row : rows) {
+            System.out.println(row);
+        }
+
+        EnvPool.shared().close();
+    }
+
+    // Component layouts as the Orchestrator computes them with the heuristic solver: components without a layout are
+    // split and their parts laid out instead
+    private static List<Solution> layOut(StatementEntityInstance instance, PolygonType polygonType) {
+        HeuristicSolver solver = new HeuristicSolver(polygonType);
+        List<Solution> components = new ArrayList<>();
+        List<StatementEntityInstance> queue = new ArrayList<>(List.of(instance));
+        while (!queue.isEmpty()) {
+            StatementEntityInstance inst = queue.remove(queue.size() - 1);
+            int dimension = (int) (Math.ceil(Math.sqrt(inst.numberOfStatements)) + 1);
+            if (polygonType == PolygonType.Rectangle) {
+                dimension += 3;
+            }
+            Solution sol = solver.solve(inst, LAYOUT_TIME_LIMIT, dimension);
+            if (sol != null) {
+                if (!sol.getEntityIds().isEmpty()) components.add(sol);
+            } else {
+                queue.addAll(new GreedySplit(inst).findSplit(SPLIT_K, SPLIT_RATIO));
+            }
+        }
+        return components;
+    }
+}
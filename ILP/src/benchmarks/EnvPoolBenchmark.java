@@ -0,0 +1,84 @@
+package benchmarks;
+
+import com.gurobi.gurobi.GRBEnv;
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBModel;
+import ilp.EnvPool;
+import ilp.ModelContext;
+import ilp.variables.VarsFactory;
+import io.StatementEntityReader;
+import model.StatementEntityInstance;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Measures the fixed cost of setting up and tearing down the model of a single component, once with a fresh
+// Gurobi environment per component (as ModelContext used to do) and once with an environment from the shared pool.
+// Run from the repository root: java benchmarks.EnvPoolBenchmark [repetitions]
+public class EnvPoolBenchmark {
+    private static final String INPUT_FOLDER = "example_data/";
+    private static final int MODEL_TYPE = 1; // polygon variables, the larger of the two variable sets
+
+    public static void main(String[] args) throws Exception {
+        int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        File[] files = new File(INPUT_FOLDER).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            System.out.println("No instances found in " + INPUT_FOLDER);
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::length));
+
+        System.out.printf("%-16s %6s %6s %14s %14s%n", "instance", "sets", "elems", "fresh env (ms)", "pooled env (ms)");
+        double totalFresh = 0;
+        double totalPooled = 0;
+        for (File file : files) {
+            StatementEntityInstance instance = StatementEntityReader.readFromFile(file.getPath());
+            int dimensions = (int) Math.ceil(Math.sqrt(instance.numberOfStatements));
+
+            // Warm up both paths, so class loading and the first license check are not measured
+            freshEnvironment(instance, dimensions);
+            pooledEnvironment(instance, dimensions);
+
+            long fresh = 0;
+            long pooled = 0;
+            for (int r = 0; r < repetitions; r++) {
+                fresh += freshEnvironment(instance, dimensions);
+                pooled += pooledEnvironment(instance, dimensions);
+            }
+            double freshMs = fresh / 1_000_000.0 / repetitions;
+            double pooledMs = pooled / 1_000_000.0 / repetitions;
+            totalFresh += freshMs;
+            totalPooled += pooledMs;
+
+            var name = file.getName().split("\\.(?=[^\\.]+$)")[0];
+            System.out.printf("%-16s %6d %6d %14.2f %14.2f%n", name, instance.numberOfEntities,
+                    instance.numberOfStatements, freshMs, pooledMs);
+        }
+        System.out.printf("%-16s %6s %6s %14.2f %14.2f%n", "mean", "", "", totalFresh / files.length,
+                totalPooled / files.length);
+        System.out.println("Environments started by the pool: " + EnvPool.shared().size());
+
+        EnvPool.shared().close();
+    }
+
+    private static long freshEnvironment(StatementEntityInstance instance, int dimensions) throws GRBException {
+        long start = System.nanoTime();
+        GRBEnv env = new GRBEnv();
+        GRBModel model = new GRBModel(env);
+        VarsFactory.create(model, instance.numberOfEntities, instance.numberOfStatements, 0, dimensions, MODEL_TYPE);
+        model.update();
+        model.dispose();
+        env.dispose();
+        return System.nanoTime() - start;
+    }
+
+    private static long pooledEnvironment(StatementEntityInstance instance, int dimensions) throws GRBException {
+        long start = System.nanoTime();
+        try (ModelContext ctx = new ModelContext(instance, dimensions, 0, 8, 0.5, 2.0, MODEL_TYPE)) {
+            ctx.model.update();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import io.StatementEntityReader;
+import model.StatementEntityInstance;
+import split.GreedySplit;
+import split.IncrementalSplit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Regression check for IncrementalSplit on split output, whose components are views on the split instance: every
+// component of an unchanged (reloaded) instance is reused, in the same key order and with the texts of the new
+// instance, and a renamed statement shows up in the reused component. One part is split once more, so views of
+// views are covered as well. Exits with status 1 if a check fails.
+// Run from the repository root: java benchmarks.IncrementalSplitCheck [instance]
+public class IncrementalSplitCheck {
+    private static final int SPLIT_K = 5;
+    private static final double SPLIT_RATIO = 1.0 / 3;
+
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : "experiment_data/LOTR.json";
+        StatementEntityInstance instance = StatementEntityReader.readFromFile(path);
+
+        List<StatementEntityInstance> parts = new ArrayList<>(new GreedySplit(instance).findSplit(SPLIT_K, SPLIT_RATIO));
+        int largest = 0;
+        for (int k = 1; k < parts.size(); k++) {
+            if (parts.get(k).numberOfStatements > parts.get(largest).numberOfStatements) largest = k;
+        }
+        parts.addAll(new GreedySplit(parts.remove(largest)).findSplit(SPLIT_K, SPLIT_RATIO));
+        parts.removeIf(part -> part.numberOfStatements == 0);
+
+        boolean ok = check("reloaded", parts, StatementEntityReader.readFromFile(path));
+
+        // Rename one statement: the incidence stays the same, so its component is reused with the new text
+        StatementEntityInstance reloaded = StatementEntityReader.readFromFile(path);
+        Map<Integer, String> statements = new HashMap<>(reloaded.statements);
+        int renamed = statements.keySet().iterator().next();
+        statements.put(renamed, statements.get(renamed) + " (edited)");
+        ok &= check("renamed", parts, new StatementEntityInstance(reloaded.entities, statements,
+                reloaded.entityIndToStatements));
+
+        System.out.println(ok ? "IncrementalSplit checks passed" : "IncrementalSplit checks FAILED");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean check(String name, List<StatementEntityInstance> parts, StatementEntityInstance edited) {
+        List<IncrementalSplit.ComponentUpdate> updates;
+        try {
+            updates = IncrementalSplit.update(parts, edited);
+        } catch (RuntimeException e) {
+            System.out.println(name + ": update failed with " + e);
+            return false;
+        }
+
+        boolean ok = updates.size() == parts.size();
+        if (!ok) System.out.println(name + ": " + updates.size() + " components instead of " + parts.size());
+        for (IncrementalSplit.ComponentUpdate update : updates) {
+            StatementEntityInstance previous = update.previousComponent() < 0 ? null
+                    : parts.get(update.previousComponent());
+            StatementEntityInstance reused = update.instance();
+            if (!update.unchanged() || previous == null) {
+                System.out.println(name + ": component " + update.previousComponent() + " was not reused");
+                ok = false;
+                continue;
+            }
+            if (!new ArrayList<>(reused.statements.keySet()).equals(new ArrayList<>(previous.statements.keySet()))
+                    || !new ArrayList<>(reused.entities.keySet()).equals(new ArrayList<>(previous.entities.keySet()))) {
+                System.out.println(name + ": component " + update.previousComponent() + " changed its key order");
+                ok = false;
+            }
+            for (Map.Entry<Integer, String> statement : reused.statements.entrySet()) {
+                if (!statement.getValue().equals(edited.statements.get(statement.getKey()))) {
+                    System.out.println(name + ": statement " + statement.getKey() + " has an outdated text");
+                    ok = false;
+                }
+            }
+            for (Map.Entry<Integer, String> entity : reused.entities.entrySet()) {
+                if (!entity.getValue().equals(edited.entities.get(entity.getKey()))) {
+                    System.out.println(name + ": entity " + entity.getKey() + " has an outdated name");
+                    ok = false;
+                }
+            }
+        }
+        return ok;
+    }
+}
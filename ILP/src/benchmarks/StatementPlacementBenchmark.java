@@ -0,0 +1,159 @@
+package benchmarks;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBCallback;
+import com.gurobi.gurobi.GRBException;
+import ilp.EnvPool;
+import ilp.ModelContext;
+import ilp.constraints.*;
+import ilp.objective.CompactSquareTopLeft;
+import ilp.PolygonType;
+import ilp.solvers.HeuristicSolver;
+import io.StatementEntityReader;
+import model.StatementEntityInstance;
+import split.GreedySplit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Compares the rectangle model with pairwise big-M statement placement (C1, H1, H2) to the one with cell assignment
+// binaries (A1, A2) on the components of the experiment instances: model size, root bound (the bound at the end of
+// the root node), final objective and bound, and solve time. The instances are split into components as the
+// Orchestrator does, with the heuristic deciding whether a component is small enough. Results go in
+// StatementPlacementBenchmark.md.
+// Run from the repository root: java benchmarks.StatementPlacementBenchmark [timeLimit]
+public class StatementPlacementBenchmark {
+    private static final String INPUT_FOLDER = "experiment_data/";
+    // Split parameters of the Orchestrator in the experiments
+    private static final int SPLIT_K = 5;
+    private static final double SPLIT_RATIO = 1.0 / 3;
+    private static final double LAYOUT_TIME_LIMIT = 0.2;
+
+    public static void main(String[] args) throws Exception {
+        double timeLimit = args.length > 0 ? Double.parseDouble(args[0]) : 60;
+
+        File[] files = new File(INPUT_FOLDER).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            System.out.println("No instances found in " + INPUT_FOLDER);
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::length));
+
+        List<String> rows = new ArrayList<>();
+        for (File file : files) {
+            var name = file.getName().split("\\.(?=[^\\.]+$)")[0];
+            StatementEntityInstance instance = StatementEntityReader.readFromFile(file.getPath());
+            List<StatementEntityInstance> components = components(instance, PolygonType.Rectangle);
+
+            for (boolean assignment : new boolean[]{false, true}) {
+                Totals totals = new Totals();
+                for (StatementEntityInstance component : components) {
+                    solve(component, assignment, timeLimit, totals);
+                }
+                rows.add(String.format("%-16s %5d %-10s %9d %9d %10.1f %10.1f %10.1f %9.2f %4d/%d", name,
+                        components.size(), assignment ? "assignment" : "pairwise", totals.vars, totals.constrs,
+                        totals.rootBound, totals.bound, totals.objective, totals.seconds, totals.optimal,
+                        components.size()));
+            }
+        }
+
+        System.out.printf("%-16s %5s %-10s %9s %9s %10s %10s %10s %9s %s%n", "instance", "comps", "placement", "vars",
+                "constrs", "root bound", "bound", "objective", "time (s)", "optimal");
+        for (String row : rows) {
+            System.out.println(row);
+        }
+
+        EnvPool.shared().close();
+    }
+
+    // Sums over the components of an instance
+    private static class Totals {
+        long vars;
+        long constrs;
+        double rootBound;
+        double bound;
+        double objective;
+        double seconds;
+        int optimal;
+    }
+
+    private static void solve(StatementEntityInstance inst, boolean assignment, double timeLimit, Totals totals)
+            throws Exception {
+        int dimension = (int) (Math.ceil(Math.sqrt(inst.numberOfStatements)) + 1) + 3;
+        List<ConstraintModule> constraints = assignment
+                ? List.of(new C00NonNegativity(), new C01UpperBound(), new A1StatementCells(),
+                        new A2EntityCellCoverage(), new H6DisjointEntitiesDoNotOverlap(), new C2SingleCellEntities(),
+                        new H8MaxWidth(), new H9MaxHeight(), new H10Squareness())
+                : List.of(new C00NonNegativity(), new C01UpperBound(), new H1StatementsInsideEntities(),
+                        new H2OutsideNonMembers(), new H6DisjointEntitiesDoNotOverlap(),
+                        new C1StatementsDistinctCoordinates(), new C2SingleCellEntities(), new H8MaxWidth(),
+                        new H9MaxHeight(), new H10Squareness());
+
+        // The settings of OrthoconvexSolver
+        try (ModelContext ctx = new ModelContext(inst, dimension - 1, 0, 8, 0.5, 2.0, 0)) {
+            for (ConstraintModule c : constraints) {
+                c.add(ctx);
+            }
+            new CompactSquareTopLeft().apply(ctx);
+            ctx.model.set(GRB.DoubleParam.Heuristics, 0.3);
+            ctx.model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+            ctx.model.set(GRB.IntParam.OutputFlag, 0);
+            ctx.assignThreads();
+
+            RootBoundCallback root = new RootBoundCallback();
+            ctx.model.setCallback(root);
+            ctx.model.optimize();
+            ctx.model.update();
+
+            totals.vars += ctx.model.get(GRB.IntAttr.NumVars);
+            totals.constrs += ctx.model.get(GRB.IntAttr.NumConstrs);
+            double bound = ctx.model.get(GRB.DoubleAttr.ObjBound);
+            totals.bound += bound;
+            totals.rootBound += Double.isNaN(root.rootBound) ? bound : root.rootBound;
+            if (ctx.model.get(GRB.IntAttr.SolCount) > 0) {
+                totals.objective += ctx.model.get(GRB.DoubleAttr.ObjVal);
+            }
+            totals.seconds += ctx.model.get(GRB.DoubleAttr.Runtime);
+            if (ctx.model.get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL) {
+                totals.optimal++;
+            }
+        }
+    }
+
+    // Keeps the best bound seen while the root node is processed
+    private static class RootBoundCallback extends GRBCallback {
+        private double rootBound = Double.NaN;
+
+        @Override
+        protected void callback() {
+            try {
+                if (where == GRB.CB_MIPNODE && getDoubleInfo(GRB.CB_MIPNODE_NODCNT) == 0) {
+                    rootBound = getDoubleInfo(GRB.CB_MIPNODE_OBJBND);
+                }
+            } catch (GRBException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // The component instances as the Orchestrator finds them with the heuristic solver for the given shapes:
+    // components without a layout are split and their parts tried instead
+    static List<StatementEntityInstance> components(StatementEntityInstance instance, PolygonType polygonType) {
+        HeuristicSolver solver = new HeuristicSolver(polygonType);
+        List<StatementEntityInstance> components = new ArrayList<>();
+        List<StatementEntityInstance> queue = new ArrayList<>(List.of(instance));
+        while (!queue.isEmpty()) {
+            StatementEntityInstance inst = queue.remove(queue.size() - 1);
+            int dimension = (int) (Math.ceil(Math.sqrt(inst.numberOfStatements)) + 1) + 3;
+            if (solver.solve(inst, LAYOUT_TIME_LIMIT, dimension) != null) {
+                if (inst.numberOfEntities > 0) components.add(inst);
+            } else {
+                queue.addAll(new GreedySplit(inst).findSplit(SPLIT_K, SPLIT_RATIO));
+            }
+        }
+        return components;
+    }
+}
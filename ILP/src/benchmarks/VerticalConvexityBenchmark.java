@@ -0,0 +1,121 @@
+package benchmarks;
+
+import com.gurobi.gurobi.GRB;
+import ilp.EnvPool;
+import ilp.ModelContext;
+import ilp.PolygonType;
+import ilp.constraints.*;
+import ilp.objective.PolygonAreaDimensionsComplexity;
+import io.StatementEntityReader;
+import model.StatementEntityInstance;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Compares the polygon models with vertical convexity per triple of rows (P3) to the ones with phase binaries per
+// pair of adjacent rows (P3b) on the components of the experiment instances: model size, time to build the
+// constraints, final objective and solve time, for the orthoconvex, nabla and gamma shapes.
+// Run from the repository root: java benchmarks.VerticalConvexityBenchmark [timeLimit]
+public class VerticalConvexityBenchmark {
+    private static final String INPUT_FOLDER = "experiment_data/";
+    private static final PolygonType[] SHAPES = {PolygonType.Orthoconvex, PolygonType.Nabla, PolygonType.Gamma};
+
+    public static void main(String[] args) throws Exception {
+        double timeLimit = args.length > 0 ? Double.parseDouble(args[0]) : 60;
+
+        File[] files = new File(INPUT_FOLDER).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            System.out.println("No instances found in " + INPUT_FOLDER);
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::length));
+
+        List<String> rows = new ArrayList<>();
+        for (File file : files) {
+            var name = file.getName().split("\\.(?=[^\\.]+$)")[0];
+            StatementEntityInstance instance = StatementEntityReader.readFromFile(file.getPath());
+
+            for (PolygonType shape : SHAPES) {
+                List<StatementEntityInstance> components = StatementPlacementBenchmark.components(instance, shape);
+                for (boolean phases : new boolean[]{false, true}) {
+                    Totals totals = new Totals();
+                    for (StatementEntityInstance component : components) {
+                        solve(component, shape, phases, timeLimit, totals);
+                    }
+                    rows.add(String.format("%-16s %-11s %5d %-8s %9d %9d %9.1f %10.1f %9.2f %4d/%d", name, shape,
+                            components.size(), phases ? "phases" : "triples", totals.vars, totals.constrs,
+                            totals.buildMs, totals.objective, totals.seconds, totals.optimal, components.size()));
+                }
+            }
+        }
+
+        System.out.printf("%-16s %-11s %5s %-8s %9s %9s %9s %10s %9s %s%n", "instance", "shape", "comps", "P3",
+                "vars", "constrs", "build (ms)", "objective", "time (s)", "optimal");
+        for (String row : rows) {
+            System.out.println(row);
+        }
+
+        EnvPool.shared().close();
+    }
+
+    // Sums over the components of an instance
+    private static class Totals {
+        long vars;
+        long constrs;
+        double buildMs;
+        double objective;
+        double seconds;
+        int optimal;
+    }
+
+    private static void solve(StatementEntityInstance inst, PolygonType shape, boolean phases, double timeLimit,
+                              Totals totals) throws Exception {
+        int dimension = (int) (Math.ceil(Math.sqrt(inst.numberOfStatements)) + 1) + 3;
+        List<ConstraintModule> constraints = new ArrayList<>(List.of(
+                new P0ValidEntityRowBounds(),
+                new P00DefineRowSpans(),
+                new P1ConsecutiveEntityRows(),
+                new P2ConnectedEntityRows(),
+                phases ? new P3bVerticalConvexityPhases() : new P3VerticalConvexity(),
+                new P4StatementsInsideEntities(),
+                new P5OutsideNonMembers(),
+                new P6DisjointEntitiesDoNotOverlap(),
+                new P7SingleCellEntities(),
+                new P8MaxWidth(),
+                new P9MaxHeight(),
+                new P10StatementIsOnRowBooleans()));
+        if (shape == PolygonType.Gamma) constraints.add(new P11EqualRowStart());
+        if (shape != PolygonType.Orthoconvex) constraints.add(new P13aNestedRowBoundsNonIncreasing());
+        constraints.add(new C1StatementsDistinctCoordinates());
+
+        // The settings of OrthoconvexSolver
+        try (ModelContext ctx = new ModelContext(inst, dimension - 1, 0, 8, 0.5, 2.0, 1)) {
+            long start = System.nanoTime();
+            for (ConstraintModule c : constraints) {
+                c.add(ctx);
+            }
+            ctx.model.update();
+            totals.buildMs += (System.nanoTime() - start) / 1_000_000.0;
+
+            new PolygonAreaDimensionsComplexity().apply(ctx);
+            ctx.model.set(GRB.DoubleParam.Heuristics, 0.3);
+            ctx.model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+            ctx.model.set(GRB.IntParam.OutputFlag, 0);
+            ctx.assignThreads();
+            ctx.model.optimize();
+
+            totals.vars += ctx.model.get(GRB.IntAttr.NumVars);
+            totals.constrs += ctx.model.get(GRB.IntAttr.NumConstrs) + ctx.model.get(GRB.IntAttr.NumGenConstrs);
+            if (ctx.model.get(GRB.IntAttr.SolCount) > 0) {
+                totals.objective += ctx.model.get(GRB.DoubleAttr.ObjVal);
+            }
+            totals.seconds += ctx.model.get(GRB.DoubleAttr.Runtime);
+            if (ctx.model.get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL) {
+                totals.optimal++;
+            }
+        }
+    }
+}
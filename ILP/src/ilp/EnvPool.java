@@ -0,0 +1,95 @@
+package ilp;
+
+import com.gurobi.gurobi.GRBEnv;
+import com.gurobi.gurobi.GRBException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Process-wide pool of Gurobi environments.
+ * <p>
+ * Starting an environment checks the license and sets up the native library, which takes longer than building and
+ * solving a small component. Models therefore borrow an environment with {@link #acquire()} and hand it back with
+ * {@link #release(GRBEnv)} once they are disposed. An environment is used by one model at a time, as Gurobi
+ * environments are not thread-safe, so the pool grows to the number of models that are alive at the same time.
+ * Parameters are reset on release, so settings of one model never leak into the next. The idle environments are
+ * disposed when the pool is closed, at the latest when the JVM shuts down.
+ */
+public final class EnvPool implements AutoCloseable {
+    private static final EnvPool shared = new EnvPool();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(shared::close, "gurobi-env-pool-shutdown"));
+    }
+
+    private final Deque<GRBEnv> idle = new ArrayDeque<>();
+    private int created = 0;
+    private boolean closed = false;
+
+    public static EnvPool shared() {
+        return shared;
+    }
+
+    public GRBEnv acquire() throws GRBException {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The Gurobi environment pool has been closed");
+            }
+            if (!idle.isEmpty()) {
+                return idle.pop();
+            }
+            created++;
+        }
+        // Start new environments outside the lock, other threads can keep borrowing idle ones meanwhile
+        try {
+            return new GRBEnv();
+        } catch (GRBException e) {
+            synchronized (this) {
+                created--;
+            }
+            throw e;
+        }
+    }
+
+    // Hands an environment back. All models created in it must have been disposed already.
+    public void release(GRBEnv env) throws GRBException {
+        if (env == null) return;
+
+        env.resetParams();
+        synchronized (this) {
+            if (!closed) {
+                idle.push(env);
+                return;
+            }
+            created--;
+        }
+        env.dispose();
+    }
+
+    // Number of environments the pool started and has not disposed yet, both idle and in use
+    public synchronized int size() {
+        return created;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        while (true) {
+            GRBEnv env;
+            synchronized (this) {
+                if (idle.isEmpty()) return;
+                env = idle.pop();
+                created--;
+            }
+            try {
+                env.dispose();
+            } catch (GRBException e) {
+                System.out.println("Error code: " + e.getErrorCode() + ". " + e.getMessage());
+            }
+        }
+    }
+}
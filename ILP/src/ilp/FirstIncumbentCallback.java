@@ -0,0 +1,28 @@
+package ilp;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBCallback;
+import com.gurobi.gurobi.GRBException;
+
+// Records when the first feasible solution of a model is found. A MIP start that Gurobi accepts counts as well.
+public class FirstIncumbentCallback extends GRBCallback {
+    private double firstIncumbent = -1;
+
+    @Override
+    protected void callback() {
+        try {
+            if (firstIncumbent >= 0) return;
+            if (where == GRB.CB_MIPSOL
+                    || (where == GRB.CB_MIP && getIntInfo(GRB.CB_MIP_SOLCNT) > 0)) {
+                firstIncumbent = getDoubleInfo(GRB.CB_RUNTIME);
+            }
+        } catch (GRBException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Seconds from the start of optimize until the first incumbent, or -1 if none was found. */
+    public double firstIncumbent() {
+        return firstIncumbent;
+    }
+}
@@ -0,0 +1,71 @@
+package ilp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBLinExpr;
+import com.gurobi.gurobi.GRBVar;
+
+import ilp.constraints.LazyConstraintModule;
+
+// Adds the constraints of lazy constraint modules that a new incumbent violates. An incumbent that is cut off this
+// way does not count as the first incumbent. The model needs the LazyConstraints parameter set. If a constraint
+// cannot be added the solve is aborted, as the violating solution would otherwise be accepted; failure() then has
+// the reason.
+public class LazyConstraintCallback extends FirstIncumbentCallback {
+    private final List<LazyConstraintModule.Separator> separators = new ArrayList<>();
+    private int added = 0;
+    private GRBException failure = null;
+
+    public void addSeparator(LazyConstraintModule.Separator separator) {
+        separators.add(separator);
+    }
+
+    public boolean isEmpty() {
+        return separators.isEmpty();
+    }
+
+    @Override
+    protected void callback() {
+        try {
+            if (where == GRB.CB_MIPSOL) {
+                int violated = 0;
+                for (LazyConstraintModule.Separator separator : separators) {
+                    violated += separator.separate(this);
+                }
+                added += violated;
+                if (violated > 0) return;
+            }
+        } catch (GRBException e) {
+            failure = e;
+            abort();
+            return;
+        }
+        super.callback();
+    }
+
+    /** Number of lazy constraints added so far. */
+    public int added() {
+        return added;
+    }
+
+    /** Why the solve was aborted, or null if it was not. */
+    public GRBException failure() {
+        return failure;
+    }
+
+    // Values of the incumbent, for the separators
+    public double[] values(GRBVar[] vars) throws GRBException {
+        return getSolution(vars);
+    }
+
+    public double[][] values(GRBVar[][] vars) throws GRBException {
+        return getSolution(vars);
+    }
+
+    public void addLazyConstraint(GRBLinExpr expr, char sense, double rhs) throws GRBException {
+        addLazy(expr, sense, rhs);
+    }
+}
@@ -0,0 +1,85 @@
+package ilp;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBLinExpr;
+import com.gurobi.gurobi.GRBVar;
+
+import ilp.variables.VarsPolygons;
+import ilp.variables.VarsRectangles;
+
+// Bounds that follow from the sizes of the sets, added to a model before any constraint module:
+// - the members of an entity are in distinct cells and at most D fit in a row or column of the D x D grid, so an
+//   entity with k statements spans at least ceil(k / D) columns and rows;
+// - likewise all statements that belong to an entity lie in [gridMin, maxWidth] x [gridMin, maxHeight], which gives
+//   lower bounds on maxWidth and maxHeight;
+// - a row of a polygon entity with a single statement spans one cell.
+// This holds for the constraint sets of the Orchestrator, which keep statements apart (C1 or A1), inside their
+// entities (H1 or P4) and inside the maximum extents (H8, H9 or P8, P9).
+public final class ModelBounds {
+    private ModelBounds() {}
+
+    /** Tightens the bounds of the variables of ctx, call this before the constraint modules are added. */
+    public static void tighten(ModelContext ctx) throws GRBException {
+        int side = ctx.gridMax - ctx.gridMin + 1;
+        int nEntities = ctx.entityIds.size();
+        // Least number of columns (and rows) every entity spans
+        int[] minExtent = new int[nEntities];
+        for (int e = 0; e < nEntities; e++) {
+            minExtent[e] = cellsPerSide(ctx.incidence.entityDegree(e), side);
+        }
+        int placed = 0;
+        for (int s = 0; s < ctx.incidence.numberOfStatements(); s++) {
+            if (ctx.incidence.statementDegree(s) > 0) placed++;
+        }
+        int minMaxExtent = ctx.gridMin + cellsPerSide(placed, side) - 1;
+
+        if (ctx.v instanceof VarsRectangles v) {
+            for (int e = 0; e < nEntities; e++) {
+                if (minExtent[e] > 1) {
+                    for (int k = 0; k < 2; k++) {
+                        // x1, y1 leave room for the extent, and x2, y2 cannot be before it ends
+                        v.entityCoordinates[e][k].set(GRB.DoubleAttr.UB, ctx.gridMax - minExtent[e] + 1);
+                        v.entityCoordinates[e][k + 2].set(GRB.DoubleAttr.LB, ctx.gridMin + minExtent[e] - 1);
+                        GRBLinExpr extent = new GRBLinExpr();
+                        extent.addTerm(1.0, v.entityCoordinates[e][k + 2]);
+                        extent.addTerm(-1.0, v.entityCoordinates[e][k]);
+                        ctx.model.addConstr(extent, GRB.GREATER_EQUAL, minExtent[e] - 1,
+                                "e" + e + "_min_extent_" + (k == 0 ? "x" : "y"));
+                    }
+                }
+            }
+            raiseLower(v.maxWidth, minMaxExtent);
+            raiseLower(v.maxHeight, minMaxExtent);
+        } else if (ctx.v instanceof VarsPolygons v) {
+            for (int e = 0; e < nEntities; e++) {
+                if (ctx.incidence.entityDegree(e) == 1) {
+                    for (GRBVar span : v.entities[e].rowSpans) {
+                        span.set(GRB.DoubleAttr.UB, 1);
+                    }
+                }
+                if (minExtent[e] > 1) {
+                    GRBLinExpr rows = new GRBLinExpr();
+                    for (GRBVar active : v.entities[e].activeRows) {
+                        rows.addTerm(1.0, active);
+                    }
+                    ctx.model.addConstr(rows, GRB.GREATER_EQUAL, minExtent[e], "e" + e + "_min_rows");
+                }
+            }
+            raiseLower(v.maxWidth, minMaxExtent);
+            raiseLower(v.maxHeight, minMaxExtent);
+        }
+    }
+
+    // The maximum extents are created with lower bound 0, and new variables cannot be queried before an update
+    private static void raiseLower(GRBVar var, int lower) throws GRBException {
+        if (lower > 0) {
+            var.set(GRB.DoubleAttr.LB, lower);
+        }
+    }
+
+    // Columns (or rows) that k distinct cells in a grid with the given side need at least
+    private static int cellsPerSide(int k, int side) {
+        return Math.max(1, (k + side - 1) / side);
+    }
+}
@@ -2,19 +2,26 @@ package ilp;
 import com.gurobi.gurobi.GRBEnv;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBModel;
+import com.gurobi.gurobi.GRBVar;
 
 import ilp.variables.Vars;
 import ilp.variables.VarsFactory;
+import model.InstanceIncidence;
 import model.StatementEntityInstance;
 
 import java.util.*;
 
 public final class ModelContext implements AutoCloseable {
   public final StatementEntityInstance inst;
+  // Incidence of inst over the same indices as entityIds and statementIds
+  public final InstanceIncidence incidence;
 
   public final GRBEnv env;
   public final GRBModel model;
 
+  // Share of the cores this model may use while it is being solved
+  private final ThreadBudget.Lease threadLease;
+
   // IDs and index lookups
   public final ArrayList<Integer> entityIds;
   public final List<Integer> statementIds;
@@ -24,6 +31,9 @@ public final class ModelContext implements AutoCloseable {
   // Vars (created via VarsFactory)
   public final Vars v;
 
+  // Assignment of statements to cells, statementCells[s][x - gridMin][y - gridMin], if A1StatementCells is used
+  public GRBVar[][][] statementCells;
+
   // Config/params
   public final int dimensions;
   public final int gridMin;
@@ -50,23 +60,45 @@ public final class ModelContext implements AutoCloseable {
     this.wTopLeft = wTopLeft;
     this.wMaxExtents = wMaxExtents;
 
-    this.entityIds = new ArrayList<>(inst.entities.keySet());
-    this.statementIds = new ArrayList<>(inst.statements.keySet());
-
+    this.incidence = inst.incidence();
+    this.entityIds = new ArrayList<>();
     this.entityIdToIdx = new HashMap<>();
-    for (int i = 0; i < entityIds.size(); i++) entityIdToIdx.put(entityIds.get(i), i);
+    for (int i = 0; i < incidence.numberOfEntities(); i++) {
+      entityIds.add(incidence.entityId(i));
+      entityIdToIdx.put(incidence.entityId(i), i);
+    }
 
+    this.statementIds = new ArrayList<>();
     this.statementIdToIdx = new HashMap<>();
-    for (int i = 0; i < statementIds.size(); i++) statementIdToIdx.put(statementIds.get(i), i);
+    for (int i = 0; i < incidence.numberOfStatements(); i++) {
+      statementIds.add(incidence.statementId(i));
+      statementIdToIdx.put(incidence.statementId(i), i);
+    }
 
-    this.env = new GRBEnv();
-    this.model = new GRBModel(env);
+    // Environments are borrowed from the shared pool, starting a new one for every component is expensive
+    this.env = EnvPool.shared().acquire();
+    try {
+      this.model = new GRBModel(env);
+    } catch (GRBException e) {
+      EnvPool.shared().release(env);
+      throw e;
+    }
+    this.threadLease = ThreadBudget.shared().open();
 
     this.v = VarsFactory.create(model, entityIds.size(), statementIds.size(), gridMin, gridMax, modelType);
   }
 
+  /** Sets the number of threads Gurobi may use, based on the size of the model. Call this right before optimizing. */
+  public int assignThreads() throws GRBException {
+    return threadLease.assign(model);
+  }
+
   @Override public void close() throws GRBException {
-    model.dispose();
-    env.dispose();
+    try {
+      model.dispose();
+      EnvPool.shared().release(env);
+    } finally {
+      threadLease.close();
+    }
   }
 }
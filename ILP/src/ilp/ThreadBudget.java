@@ -0,0 +1,110 @@
+package ilp;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBModel;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Divides a fixed number of cores over the Gurobi models that are solved at the same time.
+ * <p>
+ * A model opens a {@link Lease} as soon as it starts being built and asks for threads right before it is optimized.
+ * It then gets a share of the cores proportional to its size (variables plus constraints) compared to the other
+ * models holding a lease. Models that are still being built count with the average size of the running ones.
+ * The threads are given back when the lease is closed, which should happen when the model is disposed.
+ */
+public final class ThreadBudget {
+    private static ThreadBudget shared = new ThreadBudget(Runtime.getRuntime().availableProcessors());
+
+    private final int totalThreads;
+    private int freeThreads;
+    private final Set<Lease> leases = new LinkedHashSet<>();
+
+    public ThreadBudget(int totalThreads) {
+        if (totalThreads < 1) {
+            throw new IllegalArgumentException("A thread budget needs at least one thread, got " + totalThreads);
+        }
+        this.totalThreads = totalThreads;
+        this.freeThreads = totalThreads;
+    }
+
+    // Sets the number of cores that all models together may use (default: all available processors)
+    public static synchronized void configure(int totalThreads) {
+        shared = new ThreadBudget(totalThreads);
+    }
+
+    public static synchronized ThreadBudget shared() {
+        return shared;
+    }
+
+    public int getTotalThreads() {
+        return totalThreads;
+    }
+
+    public synchronized Lease open() {
+        Lease lease = new Lease();
+        leases.add(lease);
+        return lease;
+    }
+
+    private synchronized int allocate(Lease lease, long modelSize) {
+        long startedSize = 0;
+        int started = 0;
+        for (Lease other : leases) {
+            if (other != lease && other.size > 0) {
+                startedSize += other.size;
+                started++;
+            }
+        }
+        int waiting = leases.size() - started - 1;
+        long size = Math.max(1, modelSize);
+        double estimate = started > 0 ? (double) startedSize / started : size;
+        double weight = size / (size + startedSize + waiting * estimate);
+
+        // Always hand out at least one thread, Gurobi cannot run on zero. When the budget is exhausted that thread
+        // is borrowed, it is not taken from the free threads and thus not given back either.
+        int threads = (int) Math.max(1, Math.min(freeThreads, Math.round(totalThreads * weight)));
+        lease.reserved = Math.min(freeThreads, threads);
+        freeThreads -= lease.reserved;
+        return threads;
+    }
+
+    private synchronized void release(Lease lease) {
+        freeThreads += lease.reserved;
+        lease.reserved = 0;
+    }
+
+    public final class Lease implements AutoCloseable {
+        private long size = 0;
+        private int reserved = 0;
+
+        private Lease() {
+        }
+
+        // Sets the Threads parameter of the model to its share of the budget. Call this once the model is complete.
+        public int assign(GRBModel model) throws GRBException {
+            model.update();
+            long modelSize = (long) model.get(GRB.IntAttr.NumVars) + model.get(GRB.IntAttr.NumConstrs)
+                    + model.get(GRB.IntAttr.NumGenConstrs) + model.get(GRB.IntAttr.NumQConstrs);
+            int threads;
+            synchronized (ThreadBudget.this) {
+                // Give back an earlier share first, e.g. when the same model is optimized again
+                release(this);
+                threads = allocate(this, modelSize);
+                size = Math.max(1, modelSize);
+            }
+            model.set(GRB.IntParam.Threads, threads);
+            return threads;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ThreadBudget.this) {
+                release(this);
+                leases.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ilp.constraints;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBLinExpr;
+import com.gurobi.gurobi.GRBVar;
+
+import ilp.ModelContext;
+import ilp.variables.VarsPolygons;
+import ilp.variables.VarsRectangles;
+
+// Statements are assigned to distinct cells (A1), in place of the pairwise disjunctions of C1
+//
+// Every statement gets a binary per cell of the grid, exactly one of which is 1, and every cell holds at most one
+// statement. The coordinates of a statement are the sums of the coordinates of its cells, so no big-M is needed and
+// a fractional statement is spread over cells instead of over a disjunction per pair. Statements of the same entities
+// are ordered as in C1.
+public class A1StatementCells implements ConstraintModule {
+
+    @Override
+    public void add(ModelContext ctx) throws GRBException {
+        if (ctx.v instanceof VarsRectangles rect) {
+            assignStatementCells(ctx, rect.statementCoordinates);
+        } else if (ctx.v instanceof VarsPolygons poly) {
+            assignStatementCells(ctx, poly.statementCoordinates);
+        }
+    }
+
+    private void assignStatementCells(ModelContext ctx, GRBVar[][] statementCoordinates) throws GRBException {
+        int nStatements = ctx.statementIds.size();
+        int size = ctx.gridMax - ctx.gridMin + 1;
+
+        GRBVar[][][] cells = new GRBVar[nStatements][size][size];
+        for (int s = 0; s < nStatements; s++) {
+            GRBLinExpr one = new GRBLinExpr();
+            GRBLinExpr x = new GRBLinExpr();
+            GRBLinExpr y = new GRBLinExpr();
+            for (int gx = 0; gx < size; gx++) {
+                for (int gy = 0; gy < size; gy++) {
+                    cells[s][gx][gy] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "A1_" + s + "_" + gx + "_" + gy);
+                    one.addTerm(1.0, cells[s][gx][gy]);
+                    x.addTerm(ctx.gridMin + gx, cells[s][gx][gy]);
+                    y.addTerm(ctx.gridMin + gy, cells[s][gx][gy]);
+                }
+            }
+            ctx.model.addConstr(one, GRB.EQUAL, 1, "A1_" + s + "_one");
+
+            x.addTerm(-1.0, statementCoordinates[s][0]);
+            ctx.model.addConstr(x, GRB.EQUAL, 0, "A1_" + s + "_x");
+            y.addTerm(-1.0, statementCoordinates[s][1]);
+            ctx.model.addConstr(y, GRB.EQUAL, 0, "A1_" + s + "_y");
+        }
+
+        for (int gx = 0; gx < size; gx++) {
+            for (int gy = 0; gy < size; gy++) {
+                GRBLinExpr statements = new GRBLinExpr();
+                for (int s = 0; s < nStatements; s++) {
+                    statements.addTerm(1.0, cells[s][gx][gy]);
+                }
+                ctx.model.addConstr(statements, GRB.LESS_EQUAL, 1, "A1_cell_" + gx + "_" + gy);
+            }
+        }
+
+        for (int[] statements : ctx.incidence.statementClasses()) {
+            for (int k = 1; k < statements.length; k++) {
+                C1StatementsDistinctCoordinates.orderStatements(ctx, statementCoordinates, statements[k - 1], statements[k]);
+            }
+        }
+
+        ctx.statementCells = cells;
+    }
+}
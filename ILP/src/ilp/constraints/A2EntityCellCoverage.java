@@ -0,0 +1,110 @@
+package ilp.constraints;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBLinExpr;
+import com.gurobi.gurobi.GRBVar;
+
+import ilp.ModelContext;
+import ilp.variables.VarsRectangles;
+
+// Entity rectangles cover the cells of their statements and no cells of other statements (A2), in place of H1 and
+// the big-M disjunctions of H2. Needs the statement cells of A1StatementCells.
+//
+// Every side of a rectangle is encoded in unary: from[g] is 1 iff x1 <= g and to[g] is 1 iff g <= x2, so column g is
+// in the rectangle iff from[g] + to[g] - 1 is 1. A statement of the entity may only be in the columns and rows of the
+// rectangle, and a cell in both a column and a row of the rectangle may not hold another statement.
+public class A2EntityCellCoverage implements ConstraintModule {
+
+    @Override
+    public void add(ModelContext ctx) throws GRBException {
+        if ((ctx.v instanceof VarsRectangles v)) { // only add this constraint for rectangle solutions
+            if (ctx.statementCells == null) {
+                throw new IllegalStateException("A2EntityCellCoverage needs the statement cells of A1StatementCells, add that module first");
+            }
+            int nEntities = ctx.entityIds.size();
+            int nStatements = ctx.statementIds.size();
+            int size = ctx.gridMax - ctx.gridMin + 1;
+            GRBVar[][][] cells = ctx.statementCells;
+
+            for (int i = 0; i < nEntities; i++) {
+                GRBVar[] fromX = side(ctx, v.entityCoordinates[i][0], "A2_" + i + "_fromX", true);
+                GRBVar[] toX = side(ctx, v.entityCoordinates[i][2], "A2_" + i + "_toX", false);
+                GRBVar[] fromY = side(ctx, v.entityCoordinates[i][1], "A2_" + i + "_fromY", true);
+                GRBVar[] toY = side(ctx, v.entityCoordinates[i][3], "A2_" + i + "_toY", false);
+
+                // Statements of the entity are in its columns and rows
+                for (int s : ctx.incidence.statementsOf(i)) {
+                    for (int g = 0; g < size; g++) {
+                        GRBLinExpr column = new GRBLinExpr();
+                        GRBLinExpr row = new GRBLinExpr();
+                        for (int h = 0; h < size; h++) {
+                            column.addTerm(1.0, cells[s][g][h]);
+                            row.addTerm(1.0, cells[s][h][g]);
+                        }
+                        column.addTerm(-1.0, fromX[g]);
+                        column.addTerm(-1.0, toX[g]);
+                        ctx.model.addConstr(column, GRB.LESS_EQUAL, -1, "A2_" + i + "_" + s + "_column_" + g);
+                        row.addTerm(-1.0, fromY[g]);
+                        row.addTerm(-1.0, toY[g]);
+                        ctx.model.addConstr(row, GRB.LESS_EQUAL, -1, "A2_" + i + "_" + s + "_row_" + g);
+                    }
+                }
+
+                // Other statements are not in cells of the rectangle: the cell holds at most one of a statement that is
+                // not in the entity and the entity itself
+                for (int gx = 0; gx < size; gx++) {
+                    for (int gy = 0; gy < size; gy++) {
+                        GRBLinExpr expr = new GRBLinExpr();
+                        for (int s = 0; s < nStatements; s++) {
+                            if (!ctx.incidence.contains(i, s)) {
+                                expr.addTerm(1.0, cells[s][gx][gy]);
+                            }
+                        }
+                        if (expr.size() == 0) continue;
+                        expr.addTerm(1.0, fromX[gx]);
+                        expr.addTerm(1.0, toX[gx]);
+                        expr.addTerm(1.0, fromY[gy]);
+                        expr.addTerm(1.0, toY[gy]);
+                        ctx.model.addConstr(expr, GRB.LESS_EQUAL, 4, "A2_" + i + "_cell_" + gx + "_" + gy);
+                    }
+                }
+
+                // No column or row is outside the rectangle on both sides, which keeps from[g] + to[g] - 1 at 0 or 1
+                for (int g = 0; g < size; g++) {
+                    GRBLinExpr column = new GRBLinExpr();
+                    column.addTerm(1.0, fromX[g]);
+                    column.addTerm(1.0, toX[g]);
+                    ctx.model.addConstr(column, GRB.GREATER_EQUAL, 1, "A2_" + i + "_columnOrder_" + g);
+                    GRBLinExpr row = new GRBLinExpr();
+                    row.addTerm(1.0, fromY[g]);
+                    row.addTerm(1.0, toY[g]);
+                    ctx.model.addConstr(row, GRB.GREATER_EQUAL, 1, "A2_" + i + "_rowOrder_" + g);
+                }
+            }
+        }
+    }
+
+    // Unary encoding of a coordinate: for the start of a side, bits[g] is 1 iff coordinate <= g (non-decreasing in g),
+    // for the end, bits[g] is 1 iff g <= coordinate (non-increasing in g)
+    private static GRBVar[] side(ModelContext ctx, GRBVar coordinate, String name, boolean start) throws GRBException {
+        int size = ctx.gridMax - ctx.gridMin + 1;
+        GRBVar[] bits = new GRBVar[size];
+        GRBLinExpr sum = new GRBLinExpr();
+        for (int g = 0; g < size; g++) {
+            bits[g] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, name + "_" + g);
+            sum.addTerm(1.0, bits[g]);
+        }
+        for (int g = 0; g + 1 < size; g++) {
+            GRBLinExpr expr = new GRBLinExpr();
+            expr.addTerm(start ? 1.0 : -1.0, bits[g + 1]);
+            expr.addTerm(start ? -1.0 : 1.0, bits[g]);
+            ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 0, name + "_monotone_" + g);
+        }
+
+        // The start is gridMin plus the number of zeros, the end gridMin - 1 plus the number of ones
+        sum.addTerm(start ? 1.0 : -1.0, coordinate);
+        ctx.model.addConstr(sum, GRB.EQUAL, start ? ctx.gridMin + size : 1 - ctx.gridMin, name + "_link");
+        return bits;
+    }
+}
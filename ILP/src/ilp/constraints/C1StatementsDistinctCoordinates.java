@@ -9,104 +9,132 @@ import ilp.variables.VarsPolygons;
 import ilp.variables.VarsRectangles;
 
 // Statements have distinct coordinates (C1)
-public class C1StatementsDistinctCoordinates implements ConstraintModule {
+public class C1StatementsDistinctCoordinates implements LazyConstraintModule {
 
     @Override
     public void add(ModelContext ctx) throws GRBException {
-        if (ctx.v instanceof VarsRectangles rect) {
-            distinctStatementPositions(ctx, rect);
-        } else if (ctx.v instanceof VarsPolygons poly) {
-            distinctStatementPositions(ctx, poly);
-        }
-    }
-
-    private void distinctStatementPositions(ModelContext ctx, VarsRectangles v) throws GRBException {
+        GRBVar[][] statementCoordinates = statementCoordinates(ctx);
+        if (statementCoordinates == null) return;
         int nStatements = ctx.inst.numberOfStatements;
-        final int M = ctx.bigM;
+        int[] classOf = orderClasses(ctx, statementCoordinates);
 
         for (int i = 0; i < nStatements; i++) {
             for (int j = i + 1; j < nStatements; j++) {
-                GRBVar[] vars = new GRBVar[4];
-                for (int k = 0; k < 4; k++) {
-                    vars[k] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "C1_" + i + "_" + j + "_" + k);
-                }
-
-                GRBLinExpr expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][0]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][0]);
-                expr.addTerm(M, vars[0]);
-                ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "C1_" + i + "_" + j + "_x1");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][0]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][0]);
-                expr.addTerm(-1.0 * M, vars[1]);
-                ctx.model.addConstr(expr, GRB.LESS_EQUAL, -1, "C1_" + i + "_" + j + "_x2");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][1]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][1]);
-                expr.addTerm(M, vars[2]);
-                ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "C1_" + i + "_" + j + "_y1");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][1]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][1]);
-                expr.addTerm(-1.0 * M, vars[3]);
-                ctx.model.addConstr(expr, GRB.LESS_EQUAL, -1, "C1_" + i + "_" + j + "_y2");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, vars[0]);
-                expr.addTerm(1.0, vars[1]);
-                expr.addTerm(1.0, vars[2]);
-                expr.addTerm(1.0, vars[3]);
-                ctx.model.addConstr(expr, GRB.LESS_EQUAL, 3.0, "C1_" + i + "_" + j + "_sum");
+                if (classOf[i] == classOf[j]) continue;
+                separate(ctx, statementCoordinates, i, j, pairVars(ctx, i, j), ctx.model::addConstr);
             }
         }
     }
 
-    private void distinctStatementPositions(ModelContext ctx, VarsPolygons v) throws GRBException {
+    // The order within classes is added up front, as are the binaries of the other pairs. The constraints of a pair
+    // are added whenever an incumbent puts both statements in the same cell, also if they were added before, as
+    // Gurobi does not guarantee that later solutions respect lazy constraints.
+    @Override
+    public Separator addLazy(ModelContext ctx) throws GRBException {
+        GRBVar[][] statementCoordinates = statementCoordinates(ctx);
+        if (statementCoordinates == null) return callback -> 0;
         int nStatements = ctx.inst.numberOfStatements;
-        final int M = ctx.bigM;
+        int[] classOf = orderClasses(ctx, statementCoordinates);
 
+        GRBVar[][][] pairVars = new GRBVar[nStatements][nStatements][];
         for (int i = 0; i < nStatements; i++) {
             for (int j = i + 1; j < nStatements; j++) {
-                GRBVar[] vars = new GRBVar[4];
-                for (int k = 0; k < 4; k++) {
-                    vars[k] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "C1_" + i + "_" + j + "_" + k);
+                if (classOf[i] != classOf[j]) pairVars[i][j] = pairVars(ctx, i, j);
+            }
+        }
+
+        return callback -> {
+            double[][] coords = callback.values(statementCoordinates);
+            int added = 0;
+            for (int i = 0; i < nStatements; i++) {
+                for (int j = i + 1; j < nStatements; j++) {
+                    if (pairVars[i][j] == null || Math.round(coords[i][0]) != Math.round(coords[j][0])
+                            || Math.round(coords[i][1]) != Math.round(coords[j][1])) continue;
+                    separate(ctx, statementCoordinates, i, j, pairVars[i][j], (expr, sense, rhs, name) ->
+                            callback.addLazyConstraint(expr, sense, rhs));
+                    added++;
                 }
+            }
+            return added;
+        };
+    }
 
-                GRBLinExpr expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][0]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][0]);
-                expr.addTerm(M, vars[0]);
-                ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "C1_" + i + "_" + j + "_x1");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][0]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][0]);
-                expr.addTerm(-1.0 * M, vars[1]);
-                ctx.model.addConstr(expr, GRB.LESS_EQUAL, -1, "C1_" + i + "_" + j + "_x2");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][1]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][1]);
-                expr.addTerm(M, vars[2]);
-                ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "C1_" + i + "_" + j + "_y1");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, v.statementCoordinates[i][1]);
-                expr.addTerm(-1.0, v.statementCoordinates[j][1]);
-                expr.addTerm(-1.0 * M, vars[3]);
-                ctx.model.addConstr(expr, GRB.LESS_EQUAL, -1, "C1_" + i + "_" + j + "_y2");
-
-                expr = new GRBLinExpr();
-                expr.addTerm(1.0, vars[0]);
-                expr.addTerm(1.0, vars[1]);
-                expr.addTerm(1.0, vars[2]);
-                expr.addTerm(1.0, vars[3]);
-                ctx.model.addConstr(expr, GRB.LESS_EQUAL, 3.0, "C1_" + i + "_" + j + "_sum");
+    private static GRBVar[][] statementCoordinates(ModelContext ctx) {
+        if (ctx.v instanceof VarsRectangles rect) {
+            return rect.statementCoordinates;
+        } else if (ctx.v instanceof VarsPolygons poly) {
+            return poly.statementCoordinates;
+        }
+        return null;
+    }
+
+    // Statements of the same entities are interchangeable, so they are put in order instead. Ordered statements are
+    // distinct, which saves the pairwise constraints within a class. Returns the class of every statement.
+    private static int[] orderClasses(ModelContext ctx, GRBVar[][] statementCoordinates) throws GRBException {
+        int[][] classes = ctx.incidence.statementClasses();
+        int[] classOf = new int[ctx.inst.numberOfStatements];
+        for (int c = 0; c < classes.length; c++) {
+            for (int s : classes[c]) classOf[s] = c;
+            for (int k = 1; k < classes[c].length; k++) {
+                orderStatements(ctx, statementCoordinates, classes[c][k - 1], classes[c][k]);
             }
         }
+        return classOf;
+    }
+
+    private static GRBVar[] pairVars(ModelContext ctx, int i, int j) throws GRBException {
+        GRBVar[] vars = new GRBVar[4];
+        for (int k = 0; k < 4; k++) {
+            vars[k] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "C1_" + i + "_" + j + "_" + k);
+        }
+        return vars;
+    }
+
+    // Statements i and j differ in x or y, vars[k] relaxes side k
+    private static void separate(ModelContext ctx, GRBVar[][] statementCoordinates, int i, int j, GRBVar[] vars,
+                                 Rows rows) throws GRBException {
+        final int M = ctx.bigM;
+
+        GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(1.0, statementCoordinates[i][0]);
+        expr.addTerm(-1.0, statementCoordinates[j][0]);
+        expr.addTerm(M, vars[0]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1, "C1_" + i + "_" + j + "_x1");
+
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, statementCoordinates[i][0]);
+        expr.addTerm(-1.0, statementCoordinates[j][0]);
+        expr.addTerm(-1.0 * M, vars[1]);
+        rows.add(expr, GRB.LESS_EQUAL, -1, "C1_" + i + "_" + j + "_x2");
+
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, statementCoordinates[i][1]);
+        expr.addTerm(-1.0, statementCoordinates[j][1]);
+        expr.addTerm(M, vars[2]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1, "C1_" + i + "_" + j + "_y1");
+
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, statementCoordinates[i][1]);
+        expr.addTerm(-1.0, statementCoordinates[j][1]);
+        expr.addTerm(-1.0 * M, vars[3]);
+        rows.add(expr, GRB.LESS_EQUAL, -1, "C1_" + i + "_" + j + "_y2");
+
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, vars[0]);
+        expr.addTerm(1.0, vars[1]);
+        expr.addTerm(1.0, vars[2]);
+        expr.addTerm(1.0, vars[3]);
+        rows.add(expr, GRB.LESS_EQUAL, 3.0, "C1_" + i + "_" + j + "_sum");
+    }
+
+    // Statement i comes before statement j in reading order: (y_i * M + x_i) + 1 <= y_j * M + x_j, where M exceeds
+    // every coordinate
+    static void orderStatements(ModelContext ctx, GRBVar[][] statementCoordinates, int i, int j) throws GRBException {
+        GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(ctx.bigM, statementCoordinates[j][1]);
+        expr.addTerm(1.0, statementCoordinates[j][0]);
+        expr.addTerm(-ctx.bigM, statementCoordinates[i][1]);
+        expr.addTerm(-1.0, statementCoordinates[i][0]);
+        ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "C1_" + i + "_" + j + "_order");
     }
 }
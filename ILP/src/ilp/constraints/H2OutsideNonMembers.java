@@ -1,6 +1,5 @@
 package ilp.constraints;
 
-import java.util.Arrays;
 import com.gurobi.gurobi.GRB;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBLinExpr;
@@ -19,12 +18,8 @@ public class H2OutsideNonMembers implements ConstraintModule {
             final int M = ctx.bigM;
 
             for (int i = 0; i < nEntities; i++) {
-                int entityId = ctx.entityIds.get(i);
-
                 for (int j = 0; j < nStatements; j++) {
-                    final int statementIdFinal = ctx.statementIds.get(j);
-                    if (Arrays.stream(ctx.inst.entityIndToStatements.get(entityId))
-                            .noneMatch(x -> x == statementIdFinal)) {
+                    if (!ctx.incidence.contains(i, j)) {
 
                         GRBVar[] vars = new GRBVar[4];
                         for (int k = 0; k < 4; k++) {
@@ -1,5 +1,8 @@
 package ilp.constraints;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.gurobi.gurobi.GRB;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBLinExpr;
@@ -9,72 +12,109 @@ import ilp.ModelContext;
 import ilp.variables.VarsRectangles;
 
 // Make entities with non-overlapping statements not overlap coordinates (H6)
-public class H6DisjointEntitiesDoNotOverlap implements ConstraintModule {
+public class H6DisjointEntitiesDoNotOverlap implements LazyConstraintModule {
 
     @Override
     public void add(ModelContext ctx) throws GRBException {
         if ((ctx.v instanceof VarsRectangles v)) { // only add this constraint for rectangle solutions
             int nEntities = ctx.entityIds.size();
-            final int M = ctx.bigM;
 
             for (int i = 0; i < nEntities; i++) {
                 for (int j = i + 1; j < nEntities; j++) {
-                    int[] statementsOfEntity1 = ctx.inst.entityIndToStatements.get(ctx.entityIds.get(i));
-                    int[] statementsOfEntity2 = ctx.inst.entityIndToStatements.get(ctx.entityIds.get(j));
-                    boolean overlap = false;
-                    for (int k = 0; k < statementsOfEntity1.length; k++) {
-                        for (int l = 0; l < statementsOfEntity2.length; l++) {
-                            if (statementsOfEntity1[k] == statementsOfEntity2[l]) {
-                                overlap = true;
-                                break;
-                            }
-                        }
+                    if (!ctx.incidence.intersect(i, j)) {
+                        separate(ctx, v, i, j, pairVars(ctx, i, j), ctx.model::addConstr);
                     }
+                }
+            }
+        }
+    }
 
-                    if (!overlap) {
-
-                        GRBVar[] vars = new GRBVar[4];
-                        for (int k = 0; k < 4; k++) {
-                            vars[k] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "H6_" + i + "_" + j + "_" + k);
-                        }
-
-                        // x1_e1 - x2_e2 + M * vars[0] >= 1
-                        GRBLinExpr expr = new GRBLinExpr();
-                        expr.addTerm(-1.0, v.entityCoordinates[j][2]);
-                        expr.addTerm(1.0, v.entityCoordinates[i][0]);
-                        expr.addTerm(M, vars[0]);
-                        ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_left");
-
-                        // x2_e1 - x1_e2 + M * vars[1] >= 1
-                        expr = new GRBLinExpr();
-                        expr.addTerm(1.0, v.entityCoordinates[j][0]);
-                        expr.addTerm(-1.0, v.entityCoordinates[i][2]);
-                        expr.addTerm(M, vars[1]);
-                        ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_right");
-
-                        // y1_e1 - y2_e2 + M * vars[2] >= 1
-                        expr = new GRBLinExpr();
-                        expr.addTerm(-1.0, v.entityCoordinates[j][3]);
-                        expr.addTerm(1.0, v.entityCoordinates[i][1]);
-                        expr.addTerm(M, vars[2]);
-                        ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_top");
-
-                        // y1_e2 - y2_e1 + M * vars[3] >= 1
-                        expr = new GRBLinExpr();
-                        expr.addTerm(1.0, v.entityCoordinates[j][1]);
-                        expr.addTerm(-1.0, v.entityCoordinates[i][3]);
-                        expr.addTerm(M, vars[3]);
-                        ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_bottom");
-
-                        expr = new GRBLinExpr();
-                        expr.addTerm(1.0, vars[0]);
-                        expr.addTerm(1.0, vars[1]);
-                        expr.addTerm(1.0, vars[2]);
-                        expr.addTerm(1.0, vars[3]);
-                        ctx.model.addConstr(expr, GRB.LESS_EQUAL, 3.0, "H6_" + i + "_" + j + "_sum");
-                    }
+    // Only the binaries of the pairs are added up front. The constraints of a pair are added whenever an incumbent
+    // has the rectangles of the pair overlap, also if they were added before: Gurobi does not guarantee that later
+    // solutions respect lazy constraints, so every solution is checked against all of them.
+    @Override
+    public Separator addLazy(ModelContext ctx) throws GRBException {
+        if (!(ctx.v instanceof VarsRectangles v)) return callback -> 0;
+        int nEntities = ctx.entityIds.size();
+
+        List<int[]> pairs = new ArrayList<>();
+        List<GRBVar[]> pairVars = new ArrayList<>();
+        for (int i = 0; i < nEntities; i++) {
+            for (int j = i + 1; j < nEntities; j++) {
+                if (!ctx.incidence.intersect(i, j)) {
+                    pairs.add(new int[]{i, j});
+                    pairVars.add(pairVars(ctx, i, j));
                 }
             }
         }
+
+        return callback -> {
+            double[][] coords = callback.values(v.entityCoordinates);
+            int added = 0;
+            for (int p = 0; p < pairs.size(); p++) {
+                int i = pairs.get(p)[0];
+                int j = pairs.get(p)[1];
+                if (!overlap(coords[i], coords[j])) continue;
+                separate(ctx, v, i, j, pairVars.get(p), (expr, sense, rhs, name) ->
+                        callback.addLazyConstraint(expr, sense, rhs));
+                added++;
+            }
+            return added;
+        };
+    }
+
+    // Whether rectangles (x1, y1, x2, y2) share a cell
+    private static boolean overlap(double[] a, double[] b) {
+        return Math.round(a[0]) <= Math.round(b[2]) && Math.round(b[0]) <= Math.round(a[2])
+                && Math.round(a[1]) <= Math.round(b[3]) && Math.round(b[1]) <= Math.round(a[3]);
+    }
+
+    private static GRBVar[] pairVars(ModelContext ctx, int i, int j) throws GRBException {
+        GRBVar[] vars = new GRBVar[4];
+        for (int k = 0; k < 4; k++) {
+            vars[k] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "H6_" + i + "_" + j + "_" + k);
+        }
+        return vars;
+    }
+
+    // Entities i and j are apart on at least one side, vars[k] relaxes side k
+    private static void separate(ModelContext ctx, VarsRectangles v, int i, int j, GRBVar[] vars, Rows rows)
+            throws GRBException {
+        final int M = ctx.bigM;
+
+        // x1_e1 - x2_e2 + M * vars[0] >= 1
+        GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(-1.0, v.entityCoordinates[j][2]);
+        expr.addTerm(1.0, v.entityCoordinates[i][0]);
+        expr.addTerm(M, vars[0]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_left");
+
+        // x2_e1 - x1_e2 + M * vars[1] >= 1
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, v.entityCoordinates[j][0]);
+        expr.addTerm(-1.0, v.entityCoordinates[i][2]);
+        expr.addTerm(M, vars[1]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_right");
+
+        // y1_e1 - y2_e2 + M * vars[2] >= 1
+        expr = new GRBLinExpr();
+        expr.addTerm(-1.0, v.entityCoordinates[j][3]);
+        expr.addTerm(1.0, v.entityCoordinates[i][1]);
+        expr.addTerm(M, vars[2]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_top");
+
+        // y1_e2 - y2_e1 + M * vars[3] >= 1
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, v.entityCoordinates[j][1]);
+        expr.addTerm(-1.0, v.entityCoordinates[i][3]);
+        expr.addTerm(M, vars[3]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1, "H6_" + i + "_" + j + "_bottom");
+
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, vars[0]);
+        expr.addTerm(1.0, vars[1]);
+        expr.addTerm(1.0, vars[2]);
+        expr.addTerm(1.0, vars[3]);
+        rows.add(expr, GRB.LESS_EQUAL, 3.0, "H6_" + i + "_" + j + "_sum");
     }
 }
@@ -0,0 +1,28 @@
+package ilp.constraints;
+
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBLinExpr;
+
+import ilp.LazyConstraintCallback;
+import ilp.ModelContext;
+
+// A constraint module whose constraints can also be added lazily, when an incumbent violates them, instead of up
+// front. Lazy constraints are added from a callback, so they have to be linear and can only use variables that are
+// already in the model: addLazy adds those variables (and any constraints that should be there from the start) and
+// returns the separator that adds the constraints an incumbent violates. The separator keeps the state of one model,
+// so the module itself can still be shared between models.
+public interface LazyConstraintModule extends ConstraintModule {
+    Separator addLazy(ModelContext ctx) throws GRBException;
+
+    @FunctionalInterface
+    interface Separator {
+        // Adds the constraints that the incumbent of the callback violates, returns how many were added
+        int separate(LazyConstraintCallback callback) throws GRBException;
+    }
+
+    // Where a module puts its rows: the model itself, or the lazy constraints of a callback
+    @FunctionalInterface
+    interface Rows {
+        void add(GRBLinExpr expr, char sense, double rhs, String name) throws GRBException;
+    }
+}
@@ -20,6 +20,11 @@ public class P15MonotoneColumnSpan implements ConstraintModule {
         this.non_decreasing = non_decr;
     }
 
+    @Override
+    public String name() {
+        return getClass().getSimpleName() + "(" + non_decreasing + ")";
+    }
+
     @Override
     public void add(ModelContext ctx) throws GRBException {
         if ((ctx.v instanceof VarsPolygons v)) { // only add this constraint for polygon solutions
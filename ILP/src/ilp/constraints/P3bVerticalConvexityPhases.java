@@ -0,0 +1,74 @@
+package ilp.constraints;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBException;
+import com.gurobi.gurobi.GRBLinExpr;
+import com.gurobi.gurobi.GRBVar;
+
+import ilp.ModelContext;
+import ilp.variables.VarsPolygons;
+
+// Same vertical convexity as P3VerticalConvexity, with O(D) instead of O(D^3) binaries and constraints per entity.
+// As the active rows of an entity are consecutive (P1), a row never starting after both an earlier and a later row
+// means the row starts first do not increase and then do not decrease, and likewise the row ends first do not
+// decrease and then do not increase. A binary per entity and pair of adjacent rows says whether that pair is in the
+// second phase, and the phase can only change once going down.
+public class P3bVerticalConvexityPhases implements ConstraintModule {
+
+    @Override
+    public void add(ModelContext ctx) throws GRBException {
+        if ((ctx.v instanceof VarsPolygons v)) { // only add this constraint for polygon solutions
+            int nEntities = ctx.entityIds.size();
+            for (int i = 0; i < nEntities; i++) {
+                GRBVar[] startRising = phases(ctx, i, "startRising");
+                GRBVar[] endFalling = phases(ctx, i, "endFalling");
+
+                for (int r = 0; r < ctx.dimensions; r++) {
+                    GRBVar[] upper = v.entities[i].rowBounds[r];
+                    GRBVar[] lower = v.entities[i].rowBounds[r + 1];
+
+                    // start[r+1] <= start[r] before the phase changes, start[r+1] >= start[r] after
+                    addOrdered(ctx, v, i, r, lower[0], upper[0], startRising[r], false, "e_" + i + "_row_" + r + "_startFalling");
+                    addOrdered(ctx, v, i, r, upper[0], lower[0], startRising[r], true, "e_" + i + "_row_" + r + "_startRising");
+
+                    // end[r+1] >= end[r] before the phase changes, end[r+1] <= end[r] after
+                    addOrdered(ctx, v, i, r, upper[1], lower[1], endFalling[r], false, "e_" + i + "_row_" + r + "_endRising");
+                    addOrdered(ctx, v, i, r, lower[1], upper[1], endFalling[r], true, "e_" + i + "_row_" + r + "_endFalling");
+                }
+            }
+        }
+    }
+
+    // Phase binaries of entity i for every pair of adjacent rows, non-decreasing going down
+    private static GRBVar[] phases(ModelContext ctx, int i, String name) throws GRBException {
+        GRBVar[] phase = new GRBVar[ctx.dimensions];
+        for (int r = 0; r < ctx.dimensions; r++) {
+            phase[r] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "e_" + i + "_row_" + r + "_" + name);
+            if (r > 0) {
+                GRBLinExpr expr = new GRBLinExpr();
+                expr.addTerm(1.0, phase[r]);
+                expr.addTerm(-1.0, phase[r - 1]);
+                ctx.model.addConstr(expr, GRB.GREATER_EQUAL, 0, "e_" + i + "_row_" + r + "_" + name + "_once");
+            }
+        }
+        return phase;
+    }
+
+    // a <= b when rows r and r+1 of entity i are both active and the phase is (inPhase) or is not (!inPhase) set:
+    // a - b <= M * (2 - active[r] - active[r+1]) + M * (phase or 1 - phase), where M exceeds every coordinate
+    private static void addOrdered(ModelContext ctx, VarsPolygons v, int i, int r, GRBVar a, GRBVar b, GRBVar phase,
+                                   boolean inPhase, String name) throws GRBException {
+        GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(1.0, a);
+        expr.addTerm(-1.0, b);
+        expr.addTerm(ctx.bigM, v.entities[i].activeRows[r]);
+        expr.addTerm(ctx.bigM, v.entities[i].activeRows[r + 1]);
+        if (inPhase) {
+            expr.addTerm(ctx.bigM, phase);
+            ctx.model.addConstr(expr, GRB.LESS_EQUAL, 3 * ctx.bigM, name);
+        } else {
+            expr.addTerm(-ctx.bigM, phase);
+            ctx.model.addConstr(expr, GRB.LESS_EQUAL, 2 * ctx.bigM, name);
+        }
+    }
+}
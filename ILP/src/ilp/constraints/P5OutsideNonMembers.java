@@ -1,7 +1,5 @@
 package ilp.constraints;
 
-import java.util.Arrays;
-
 import com.gurobi.gurobi.GRB;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBLinExpr;
@@ -19,12 +17,8 @@ public class P5OutsideNonMembers implements ConstraintModule {
             int nEntities = ctx.entityIds.size();
 
             for (int i = 0; i < nEntities; i++) {
-                int entityId = ctx.entityIds.get(i);
-
                 for (int st = 0; st < nStatements; st++) {
-                    final int statementIdFinal = ctx.statementIds.get(st);
-                    if (Arrays.stream(ctx.inst.entityIndToStatements.get(entityId))
-                            .noneMatch(x -> x == statementIdFinal)) {
+                    if (!ctx.incidence.contains(i, st)) {
 
                         for (int j = 0; j <= ctx.dimensions; j++) {
                             GRBVar b1 = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "left_of_entity_b1");
@@ -1,5 +1,8 @@
 package ilp.constraints;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.gurobi.gurobi.GRB;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBLinExpr;
@@ -8,7 +11,7 @@ import com.gurobi.gurobi.GRBVar;
 import ilp.ModelContext;
 import ilp.variables.VarsPolygons;
 
-public class P6DisjointEntitiesDoNotOverlap implements ConstraintModule {
+public class P6DisjointEntitiesDoNotOverlap implements LazyConstraintModule {
 
     @Override
     public void add(ModelContext ctx) throws GRBException {
@@ -17,19 +20,7 @@ public class P6DisjointEntitiesDoNotOverlap implements ConstraintModule {
 
             for (int i = 0; i < nEntities; i++) {
                 for (int j = i + 1; j < nEntities; j++) {
-                    int[] statementsOfEntity1 = ctx.inst.entityIndToStatements.get(ctx.entityIds.get(i));
-                    int[] statementsOfEntity2 = ctx.inst.entityIndToStatements.get(ctx.entityIds.get(j));
-                    boolean overlap = false;
-                    for (int k = 0; k < statementsOfEntity1.length; k++) {
-                        for (int l = 0; l < statementsOfEntity2.length; l++) {
-                            if (statementsOfEntity1[k] == statementsOfEntity2[l]) {
-                                overlap = true;
-                                break;
-                            }
-                        }
-                    }
-
-                    if (!overlap) {
+                    if (!ctx.incidence.intersect(i, j)) {
                         for (int row = 0; row <= ctx.dimensions; row++) {
 
                             // Different rows
@@ -74,4 +65,88 @@ public class P6DisjointEntitiesDoNotOverlap implements ConstraintModule {
             }
         }
     }
+
+    // Indicator constraints cannot be added from a callback, so the lazy constraints are their big-M forms, with M
+    // the bound of ModelContext (row bounds lie in [0, gridMax]). The three binaries of every pair and row are added
+    // up front, their constraints whenever an incumbent has the pair overlap on that row, also if they were added
+    // before, as Gurobi does not guarantee that later solutions respect lazy constraints.
+    @Override
+    public Separator addLazy(ModelContext ctx) throws GRBException {
+        if (!(ctx.v instanceof VarsPolygons v)) return callback -> 0;
+        int nEntities = ctx.entityIds.size();
+        int nRows = ctx.dimensions + 1;
+
+        List<int[]> pairs = new ArrayList<>();
+        List<GRBVar[][]> pairVars = new ArrayList<>();
+        for (int i = 0; i < nEntities; i++) {
+            for (int j = i + 1; j < nEntities; j++) {
+                if (!ctx.incidence.intersect(i, j)) {
+                    GRBVar[][] vars = new GRBVar[nRows][3];
+                    for (int row = 0; row < nRows; row++) {
+                        vars[row][0] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "P6_" + i + "_" + j + "_" + row + "_notBoth");
+                        vars[row][1] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "P6_" + i + "_" + j + "_" + row + "_after");
+                        vars[row][2] = ctx.model.addVar(0.0, 1.0, 0.0, GRB.BINARY, "P6_" + i + "_" + j + "_" + row + "_before");
+                    }
+                    pairs.add(new int[]{i, j});
+                    pairVars.add(vars);
+                }
+            }
+        }
+
+        return callback -> {
+            double[][] active = new double[nEntities][];
+            double[][][] bounds = new double[nEntities][][];
+            for (int e = 0; e < nEntities; e++) {
+                active[e] = callback.values(v.entities[e].activeRows);
+                bounds[e] = callback.values(v.entities[e].rowBounds);
+            }
+            int added = 0;
+            for (int p = 0; p < pairs.size(); p++) {
+                int i = pairs.get(p)[0];
+                int j = pairs.get(p)[1];
+                for (int row = 0; row < nRows; row++) {
+                    if (active[i][row] < 0.5 || active[j][row] < 0.5
+                            || Math.round(bounds[i][row][0]) > Math.round(bounds[j][row][1])
+                            || Math.round(bounds[j][row][0]) > Math.round(bounds[i][row][1])) continue;
+                    separateRow(ctx, v, i, j, row, pairVars.get(p)[row], (expr, sense, rhs, name) ->
+                            callback.addLazyConstraint(expr, sense, rhs));
+                    added++;
+                }
+            }
+            return added;
+        };
+    }
+
+    // Entities i and j are not both on the row (vars[0]), or i is after j (vars[1]) or before j (vars[2]) on it
+    private static void separateRow(ModelContext ctx, VarsPolygons v, int i, int j, int row, GRBVar[] vars,
+                                    Rows rows) throws GRBException {
+        final int M = ctx.bigM;
+
+        // active_i + active_j + notBoth <= 2
+        GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(1.0, v.entities[i].activeRows[row]);
+        expr.addTerm(1.0, v.entities[j].activeRows[row]);
+        expr.addTerm(1.0, vars[0]);
+        rows.add(expr, GRB.LESS_EQUAL, 2.0, "P6_" + i + "_" + j + "_" + row + "_notBoth");
+
+        // start_i - end_j >= 1 - M * (1 - after)
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, v.entities[i].rowBounds[row][0]);
+        expr.addTerm(-1.0, v.entities[j].rowBounds[row][1]);
+        expr.addTerm(-M, vars[1]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1.0 - M, "P6_" + i + "_" + j + "_" + row + "_after");
+
+        // end_i - start_j <= -1 + M * (1 - before)
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, v.entities[i].rowBounds[row][1]);
+        expr.addTerm(-1.0, v.entities[j].rowBounds[row][0]);
+        expr.addTerm(M, vars[2]);
+        rows.add(expr, GRB.LESS_EQUAL, M - 1.0, "P6_" + i + "_" + j + "_" + row + "_before");
+
+        expr = new GRBLinExpr();
+        expr.addTerm(1.0, vars[0]);
+        expr.addTerm(1.0, vars[1]);
+        expr.addTerm(1.0, vars[2]);
+        rows.add(expr, GRB.GREATER_EQUAL, 1.0, "P6_" + i + "_" + j + "_" + row + "_or");
+    }
 }
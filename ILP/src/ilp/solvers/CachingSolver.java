@@ -0,0 +1,44 @@
+package ilp.solvers;
+
+import com.gurobi.gurobi.GRBException;
+import ilp.PolygonType;
+import io.LayoutCache;
+import model.CanonicalInstance;
+import model.Solution;
+import model.StatementEntityInstance;
+
+/**
+ * Looks up component layouts in a {@link LayoutCache} before handing the instance to another solver, and stores
+ * whatever that solver returns. On a hit Gurobi is not started at all.
+ */
+public class CachingSolver implements Solver {
+    private final Solver solver;
+    private final LayoutCache cache;
+    private final PolygonType polygonType;
+
+    public CachingSolver(Solver solver, LayoutCache cache, PolygonType polygonType) {
+        this.solver = solver;
+        this.cache = cache;
+        this.polygonType = polygonType;
+    }
+
+    @Override
+    public Solution solve(StatementEntityInstance inst, double timeLimit, int dimensions) throws Exception, GRBException {
+        CanonicalInstance canonical = CanonicalInstance.of(inst);
+        String key = LayoutCache.key(canonical, polygonType.name(), dimensions, solver.describe());
+
+        LayoutCache.Hit hit = cache.get(key, inst, canonical, timeLimit);
+        if (hit != null) {
+            return hit.solution();
+        }
+
+        Solution sol = solver.solve(inst, timeLimit, dimensions);
+        cache.put(key, sol, canonical, timeLimit);
+        return sol;
+    }
+
+    @Override
+    public String describe() {
+        return solver.describe();
+    }
+}
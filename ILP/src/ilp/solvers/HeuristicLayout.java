@@ -0,0 +1,619 @@
+package ilp.solvers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ilp.PolygonType;
+import model.PolygonSolution;
+import model.RectangleSolution;
+import model.Solution;
+import model.StatementEntityInstance;
+
+// Simulated annealing over the cells of the statements of a single component.
+//
+// Only the statements move. Every entity gets the smallest shape of the requested type that contains all of its
+// statements: its bounding box for rectangles, and for polygons the closure of its cells under the row constraints
+// (one interval per row, consecutive overlapping rows, vertical convexity, and nesting for Nabla and Gamma shapes).
+// So the shape constraints hold by construction, and what the annealing has to get rid of are violations: cells where
+// an entity covers a statement that is not in it, and cells covered by two entities without a common statement.
+// Besides that it minimizes the same kind of objective as the ILP (dimensions, area and row changes).
+final class HeuristicLayout {
+    private static final int MOVES_PER_STATEMENT = 4000;
+    private static final int MIN_MOVES = 20000;
+    private static final int ROUNDS = 3; // schedules to run before giving up on finding a layout without violations
+    private static final double START_TEMPERATURE = 2.0;
+    private static final double END_TEMPERATURE = 0.02;
+    // A round that has not found a layout without violations gives up after this many sweeps (a move per statement)
+    // without a new low in the number of violations, and no further round is run if it did not get below the
+    // previous one: components that cannot be laid out are split early instead of using up the time limit
+    private static final int STALL_SWEEPS = 200;
+
+    // A shape given by one interval per row, rows top .. top + start.length - 1
+    static final class Shape {
+        final int top;
+        final int[] start;
+        final int[] end;
+        final double cost;
+
+        Shape(int top, int[] start, int[] end, double cost) {
+            this.top = top;
+            this.start = start;
+            this.end = end;
+            this.cost = cost;
+        }
+    }
+
+    private final StatementEntityInstance inst;
+    private final PolygonType polygonType;
+    private final int dimensions; // the grid has dimensions x dimensions cells
+    private final int nStatements;
+    private final int nEntities;
+    private final int words;
+
+    private final int[][] entityStatements; // statement indices of every entity
+    private final int[][] statementEntities; // entity indices of every statement
+    private final long[][] statementMembers; // bitset of the entities of every statement
+    private final long[][] disjointEntities; // bitset of the entities without a common statement, per entity
+
+    private final int[] statementCell; // cell = y * dimensions + x
+    private final int[] cellStatement; // -1 for empty cells
+    private final Shape[] shapes;
+    private final long[][] cover; // bitset of the entities covering every cell
+    private final int[] coverCount;
+    private final int[] rowCount; // statements per row and column, for the dimensions of the layout
+    private final int[] columnCount;
+
+    private int violations;
+    private double shapeCost;
+
+    // Scratch space to collect the cells a move touches
+    private final int[] mark;
+    private int epoch = 0;
+    private final int[] touched;
+
+    HeuristicLayout(StatementEntityInstance inst, int dimensions, PolygonType polygonType) {
+        if (polygonType == PolygonType.Arbitrary) {
+            throw new IllegalArgumentException("Arbitrary polygons cannot be laid out by the heuristic");
+        }
+        this.inst = inst;
+        this.polygonType = polygonType;
+        this.dimensions = dimensions;
+
+        List<Integer> statementIds = new ArrayList<>(inst.statements.keySet());
+        List<Integer> entityIds = new ArrayList<>(inst.entities.keySet());
+        nStatements = statementIds.size();
+        nEntities = entityIds.size();
+        words = Math.max(1, (nEntities + 63) / 64);
+
+        Map<Integer, Integer> statementIndex = new HashMap<>();
+        for (int s = 0; s < nStatements; s++) statementIndex.put(statementIds.get(s), s);
+
+        entityStatements = new int[nEntities][];
+        List<List<Integer>> entitiesOfStatement = new ArrayList<>();
+        for (int s = 0; s < nStatements; s++) entitiesOfStatement.add(new ArrayList<>());
+        for (int e = 0; e < nEntities; e++) {
+            LinkedHashSet<Integer> members = new LinkedHashSet<>();
+            int[] statements = inst.entityIndToStatements.get(entityIds.get(e));
+            if (statements != null) {
+                for (int statementId : statements) {
+                    Integer s = statementIndex.get(statementId);
+                    if (s != null) members.add(s);
+                }
+            }
+            entityStatements[e] = members.stream().mapToInt(Integer::intValue).toArray();
+            for (int s : entityStatements[e]) entitiesOfStatement.get(s).add(e);
+        }
+
+        statementEntities = new int[nStatements][];
+        statementMembers = new long[nStatements][words];
+        for (int s = 0; s < nStatements; s++) {
+            statementEntities[s] = entitiesOfStatement.get(s).stream().mapToInt(Integer::intValue).toArray();
+            for (int e : statementEntities[s]) statementMembers[s][e >> 6] |= 1L << e;
+        }
+
+        disjointEntities = new long[nEntities][words];
+        for (int e = 0; e < nEntities; e++) {
+            long[] shared = new long[words];
+            for (int s : entityStatements[e]) {
+                for (int w = 0; w < words; w++) shared[w] |= statementMembers[s][w];
+            }
+            for (int f = 0; f < nEntities; f++) {
+                if ((shared[f >> 6] & (1L << f)) == 0) disjointEntities[e][f >> 6] |= 1L << f;
+            }
+        }
+
+        int cells = dimensions * dimensions;
+        statementCell = new int[nStatements];
+        cellStatement = new int[cells];
+        shapes = new Shape[nEntities];
+        cover = new long[cells][words];
+        coverCount = new int[cells];
+        rowCount = new int[dimensions];
+        columnCount = new int[dimensions];
+        mark = new int[cells];
+        touched = new int[cells];
+
+        initialPlacement();
+    }
+
+    // Runs the annealing until a layout without violations has been optimized or the time limit is reached, and
+    // leaves the best such layout behind. Returns false if no layout without violations was found.
+    boolean anneal(double timeLimit, Random random) {
+        long deadline = System.nanoTime() + (long) (timeLimit * 1_000_000_000L);
+        long moves = Math.max(MIN_MOVES, (long) MOVES_PER_STATEMENT * nStatements);
+
+        int[] best = violations == 0 ? statementCell.clone() : null;
+        double bestCost = violations == 0 ? objective() : Double.POSITIVE_INFINITY;
+        if (nStatements < 2) return best != null;
+
+        long stallMoves = (long) STALL_SWEEPS * nStatements;
+        int fewestBefore = Integer.MAX_VALUE;
+        rounds:
+        for (int round = 0; round < ROUNDS && (round == 0 || best == null); round++) {
+            int fewest = violations;
+            long lastGain = 0;
+            for (long move = 0; move < moves; move++) {
+                if ((move & 255) == 0 && System.nanoTime() > deadline) break rounds;
+                if (best == null && move - lastGain > stallMoves) break;
+                double progress = (double) move / moves;
+                double temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+                // Violations get more expensive as the layout cools down, so the end result has none
+                double penalty = 1.0 + (2.0 * dimensions + round * dimensions) * progress;
+
+                tryMove(random, temperature, penalty);
+                if (violations < fewest) {
+                    fewest = violations;
+                    lastGain = move;
+                }
+
+                if (violations == 0) {
+                    double cost = objective();
+                    if (cost < bestCost - 1e-9) {
+                        bestCost = cost;
+                        best = statementCell.clone();
+                    }
+                }
+            }
+            if (best == null && fewest >= fewestBefore) break;
+            fewestBefore = Math.min(fewestBefore, fewest);
+        }
+
+        if (best == null) return false;
+        place(best);
+        return true;
+    }
+
+    int violations() {
+        return violations;
+    }
+
+    // Statement coordinates in key set order, with the layout moved against the top left corner
+    int[][] statementCoordinates() {
+        int[] offset = offset();
+        int[][] coordinates = new int[nStatements][2];
+        for (int s = 0; s < nStatements; s++) {
+            coordinates[s][0] = statementCell[s] % dimensions - offset[0];
+            coordinates[s][1] = statementCell[s] / dimensions - offset[1];
+        }
+        return coordinates;
+    }
+
+    Solution toSolution() {
+        int[] offset = offset();
+        int[][] statementCoordinates = statementCoordinates();
+        ArrayList<Integer> entityIds = new ArrayList<>(inst.entities.keySet());
+        int w = 0;
+        int h = 0;
+        for (int[] coordinate : statementCoordinates) {
+            w = Math.max(w, coordinate[0]);
+            h = Math.max(h, coordinate[1]);
+        }
+
+        if (polygonType == PolygonType.Rectangle) {
+            int[][] entityCoordinates = new int[nEntities][4];
+            for (int e = 0; e < nEntities; e++) {
+                Shape shape = shapes[e];
+                if (shape == null) continue; // entity without statements in this component
+                entityCoordinates[e][0] = shape.start[0] - offset[0];
+                entityCoordinates[e][1] = shape.top - offset[1];
+                entityCoordinates[e][2] = shape.end[0] - offset[0];
+                entityCoordinates[e][3] = shape.top + shape.start.length - 1 - offset[1];
+            }
+            return new RectangleSolution(inst, w, h, entityIds, entityCoordinates, statementCoordinates);
+        }
+
+        // Same layout as SolutionExtractor: per entity and row whether it is active, and its start and end
+        int[][][] entities = new int[nEntities][dimensions][3];
+        for (int e = 0; e < nEntities; e++) {
+            Shape shape = shapes[e];
+            if (shape == null) continue;
+            for (int r = 0; r < shape.start.length; r++) {
+                int row = shape.top + r - offset[1];
+                entities[e][row][0] = 1;
+                entities[e][row][1] = shape.start[r] - offset[0];
+                entities[e][row][2] = shape.end[r] - offset[0];
+            }
+        }
+        return new PolygonSolution(inst, w, h, entityIds, entities, statementCoordinates);
+    }
+
+    // Statements in breadth-first order over shared entities, filled row by row into a square in the top left
+    private void initialPlacement() {
+        int[] order = new int[nStatements];
+        boolean[] visited = new boolean[nStatements];
+        boolean[] entityVisited = new boolean[nEntities];
+        int placed = 0;
+        for (int first = 0; first < nStatements; first++) {
+            if (visited[first]) continue;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(first);
+            visited[first] = true;
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                order[placed++] = s;
+                for (int e : statementEntities[s]) {
+                    if (entityVisited[e]) continue;
+                    entityVisited[e] = true;
+                    for (int t : entityStatements[e]) {
+                        if (!visited[t]) {
+                            visited[t] = true;
+                            queue.add(t);
+                        }
+                    }
+                }
+            }
+        }
+
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(nStatements)));
+        int[] cells = new int[nStatements];
+        for (int k = 0; k < nStatements; k++) {
+            int y = k / side;
+            int x = y % 2 == 0 ? k % side : side - 1 - k % side;
+            cells[order[k]] = y * dimensions + x;
+        }
+        place(cells);
+    }
+
+    // Puts the statements in the given cells and rebuilds all shapes and counts
+    private void place(int[] cells) {
+        Arrays.fill(cellStatement, -1);
+        Arrays.fill(rowCount, 0);
+        Arrays.fill(columnCount, 0);
+        for (long[] bits : cover) Arrays.fill(bits, 0);
+        Arrays.fill(coverCount, 0);
+
+        for (int s = 0; s < nStatements; s++) {
+            statementCell[s] = cells[s];
+            cellStatement[cells[s]] = s;
+            rowCount[cells[s] / dimensions]++;
+            columnCount[cells[s] % dimensions]++;
+        }
+        shapeCost = 0;
+        for (int e = 0; e < nEntities; e++) {
+            shapes[e] = shapeOf(e);
+            if (shapes[e] == null) continue;
+            setCover(e, shapes[e], true);
+            shapeCost += shapes[e].cost;
+        }
+        violations = 0;
+        for (int c = 0; c < cover.length; c++) violations += violations(c);
+    }
+
+    private void tryMove(Random random, double temperature, double penalty) {
+        int s = random.nextInt(nStatements);
+        int from = statementCell[s];
+        int to = target(s, random);
+        if (to == from) return;
+        int t = cellStatement[to];
+
+        int[] affected = affectedEntities(s, t);
+        Shape[] before = new Shape[affected.length];
+        for (int k = 0; k < affected.length; k++) before[k] = shapes[affected[k]];
+
+        // New shapes with the statements swapped
+        swap(s, t, from, to);
+        Shape[] after = new Shape[affected.length];
+        for (int k = 0; k < affected.length; k++) after[k] = shapeOf(affected[k]);
+        double extentAfter = extentCost();
+        swap(s, t, to, from);
+        double extentBefore = extentCost();
+
+        // Only the cells covered by an affected entity before or after, and the two cells themselves can change
+        epoch++;
+        int nTouched = 0;
+        nTouched = touch(from, nTouched);
+        nTouched = touch(to, nTouched);
+        for (int k = 0; k < affected.length; k++) {
+            nTouched = touch(before[k], nTouched);
+            nTouched = touch(after[k], nTouched);
+        }
+
+        int violationsBefore = 0;
+        for (int k = 0; k < nTouched; k++) violationsBefore += violations(touched[k]);
+
+        swap(s, t, from, to);
+        double shapeDelta = 0;
+        for (int k = 0; k < affected.length; k++) {
+            replaceShape(affected[k], before[k], after[k]);
+            shapeDelta += cost(after[k]) - cost(before[k]);
+        }
+
+        int violationsAfter = 0;
+        for (int k = 0; k < nTouched; k++) violationsAfter += violations(touched[k]);
+
+        double delta = penalty * (violationsAfter - violationsBefore) + shapeDelta + extentAfter - extentBefore;
+        if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+            violations += violationsAfter - violationsBefore;
+            shapeCost += shapeDelta;
+            return;
+        }
+
+        // Undo
+        for (int k = 0; k < affected.length; k++) replaceShape(affected[k], after[k], before[k]);
+        swap(s, t, to, from);
+    }
+
+    // A cell next to a statement that shares an entity with s, or any cell in or just around the layout
+    private int target(int s, Random random) {
+        int x;
+        int y;
+        if (statementEntities[s].length > 0 && random.nextBoolean()) {
+            int[] members = entityStatements[statementEntities[s][random.nextInt(statementEntities[s].length)]];
+            int other = statementCell[members[random.nextInt(members.length)]];
+            x = other % dimensions + random.nextInt(3) - 1;
+            y = other / dimensions + random.nextInt(3) - 1;
+        } else {
+            int[] columns = extent(columnCount);
+            int[] rows = extent(rowCount);
+            x = columns[0] - 1 + random.nextInt(columns[1] - columns[0] + 3);
+            y = rows[0] - 1 + random.nextInt(rows[1] - rows[0] + 3);
+        }
+        x = Math.max(0, Math.min(dimensions - 1, x));
+        y = Math.max(0, Math.min(dimensions - 1, y));
+        return y * dimensions + x;
+    }
+
+    private int[] affectedEntities(int s, int t) {
+        if (t < 0) return statementEntities[s];
+        long[] seen = statementMembers[s].clone();
+        int[] extra = Arrays.stream(statementEntities[t]).filter(e -> (seen[e >> 6] & (1L << e)) == 0).toArray();
+        int[] affected = Arrays.copyOf(statementEntities[s], statementEntities[s].length + extra.length);
+        System.arraycopy(extra, 0, affected, statementEntities[s].length, extra.length);
+        return affected;
+    }
+
+    // Moves statement s from one cell to the other, and t (if any) the other way round
+    private void swap(int s, int t, int from, int to) {
+        statementCell[s] = to;
+        cellStatement[to] = s;
+        cellStatement[from] = t;
+        rowCount[from / dimensions]--;
+        columnCount[from % dimensions]--;
+        rowCount[to / dimensions]++;
+        columnCount[to % dimensions]++;
+        if (t >= 0) {
+            statementCell[t] = from;
+            rowCount[to / dimensions]--;
+            columnCount[to % dimensions]--;
+            rowCount[from / dimensions]++;
+            columnCount[from % dimensions]++;
+        }
+    }
+
+    private void replaceShape(int e, Shape previous, Shape next) {
+        if (previous != null) setCover(e, previous, false);
+        if (next != null) setCover(e, next, true);
+        shapes[e] = next;
+    }
+
+    private void setCover(int e, Shape shape, boolean covered) {
+        for (int r = 0; r < shape.start.length; r++) {
+            int row = (shape.top + r) * dimensions;
+            for (int x = shape.start[r]; x <= shape.end[r]; x++) {
+                if (covered) {
+                    cover[row + x][e >> 6] |= 1L << e;
+                    coverCount[row + x]++;
+                } else {
+                    cover[row + x][e >> 6] &= ~(1L << e);
+                    coverCount[row + x]--;
+                }
+            }
+        }
+    }
+
+    private int touch(int cell, int nTouched) {
+        if (mark[cell] != epoch) {
+            mark[cell] = epoch;
+            touched[nTouched++] = cell;
+        }
+        return nTouched;
+    }
+
+    private int touch(Shape shape, int nTouched) {
+        if (shape == null) return nTouched;
+        for (int r = 0; r < shape.start.length; r++) {
+            int row = (shape.top + r) * dimensions;
+            for (int x = shape.start[r]; x <= shape.end[r]; x++) nTouched = touch(row + x, nTouched);
+        }
+        return nTouched;
+    }
+
+    // Entities covering the statement in this cell without containing it, plus pairs of disjoint entities covering it
+    private int violations(int cell) {
+        if (coverCount[cell] == 0) return 0;
+        long[] covering = cover[cell];
+        int count = 0;
+
+        int s = cellStatement[cell];
+        if (s >= 0) {
+            for (int w = 0; w < words; w++) count += Long.bitCount(covering[w] & ~statementMembers[s][w]);
+        }
+
+        if (coverCount[cell] > 1) {
+            int pairs = 0;
+            for (int w = 0; w < words; w++) {
+                long bits = covering[w];
+                while (bits != 0) {
+                    int e = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    for (int v = 0; v < words; v++) pairs += Long.bitCount(covering[v] & disjointEntities[e][v]);
+                }
+            }
+            count += pairs / 2;
+        }
+        return count;
+    }
+
+    private double objective() {
+        return shapeCost + extentCost();
+    }
+
+    // Cost of the dimensions of the layout, as in the objectives of the ILP
+    private double extentCost() {
+        int[] columns = extent(columnCount);
+        int[] rows = extent(rowCount);
+        int w = columns[1] - columns[0];
+        int h = rows[1] - rows[0];
+        if (polygonType == PolygonType.Rectangle) {
+            return Math.abs(w - h) + 2.0 * w + 2.0 * h;
+        }
+        return w + h;
+    }
+
+    private static double cost(Shape shape) {
+        return shape == null ? 0 : shape.cost;
+    }
+
+    // First and last index with a statement
+    private int[] extent(int[] count) {
+        int first = 0;
+        while (first < count.length - 1 && count[first] == 0) first++;
+        int last = count.length - 1;
+        while (last > first && count[last] == 0) last--;
+        return new int[]{first, last};
+    }
+
+    private int[] offset() {
+        return new int[]{extent(columnCount)[0], extent(rowCount)[0]};
+    }
+
+    // The smallest shape of the polygon type that contains all statements of the entity
+    private Shape shapeOf(int e) {
+        int[] members = entityStatements[e];
+        if (members.length == 0) return null;
+
+        int top = dimensions;
+        int bottom = -1;
+        for (int s : members) {
+            int y = statementCell[s] / dimensions;
+            top = Math.min(top, y);
+            bottom = Math.max(bottom, y);
+        }
+        int rows = bottom - top + 1;
+        // Leftmost and rightmost statement per row, MAX_VALUE and -1 for rows without statements of the entity
+        int[] lo = new int[rows];
+        int[] hi = new int[rows];
+        Arrays.fill(lo, Integer.MAX_VALUE);
+        Arrays.fill(hi, -1);
+        for (int s : members) {
+            int r = statementCell[s] / dimensions - top;
+            int x = statementCell[s] % dimensions;
+            lo[r] = Math.min(lo[r], x);
+            hi[r] = Math.max(hi[r], x);
+        }
+
+        int[] start = new int[rows];
+        int[] end = new int[rows];
+        switch (polygonType) {
+            case Rectangle -> {
+                Arrays.fill(start, Arrays.stream(lo).min().getAsInt());
+                Arrays.fill(end, Arrays.stream(hi).max().getAsInt());
+                int x1 = start[0];
+                int x2 = end[0];
+                return new Shape(top, start, end, (x2 - x1) + (rows - 1));
+            }
+            case Nabla -> {
+                // Every row contains the rows below it
+                for (int r = rows - 1; r >= 0; r--) {
+                    start[r] = r == rows - 1 ? lo[r] : Math.min(lo[r], start[r + 1]);
+                    end[r] = r == rows - 1 ? hi[r] : Math.max(hi[r], end[r + 1]);
+                }
+            }
+            case Gamma -> {
+                // Every row contains the rows below it and all rows start in the same column
+                int left = Arrays.stream(lo).min().getAsInt();
+                for (int r = rows - 1; r >= 0; r--) {
+                    start[r] = left;
+                    end[r] = r == rows - 1 ? hi[r] : Math.max(hi[r], end[r + 1]);
+                }
+            }
+            default -> orthoconvexClosure(lo, hi, start, end);
+        }
+        return new Shape(top, start, end, polygonCost(start, end));
+    }
+
+    // Row intervals with starts that first decrease and then increase, and ends that first increase and then decrease
+    // (vertical convexity), where consecutive rows overlap. Rows that need a cell for this get the one that is closest
+    // to the row above; the closure is recomputed until nothing changes.
+    private static void orthoconvexClosure(int[] lo, int[] hi, int[] start, int[] end) {
+        int rows = lo.length;
+        lo = lo.clone();
+        hi = hi.clone();
+        while (true) {
+            int prefixMin = Integer.MAX_VALUE;
+            int prefixMax = -1;
+            for (int r = 0; r < rows; r++) {
+                prefixMin = Math.min(prefixMin, lo[r]);
+                prefixMax = Math.max(prefixMax, hi[r]);
+                start[r] = prefixMin;
+                end[r] = prefixMax;
+            }
+            int suffixMin = Integer.MAX_VALUE;
+            int suffixMax = -1;
+            for (int r = rows - 1; r >= 0; r--) {
+                suffixMin = Math.min(suffixMin, lo[r]);
+                suffixMax = Math.max(suffixMax, hi[r]);
+                start[r] = Math.max(start[r], suffixMin);
+                end[r] = Math.min(end[r], suffixMax);
+            }
+
+            boolean changed = false;
+            for (int r = 0; r < rows && !changed; r++) {
+                if (start[r] > end[r]) {
+                    // A row without statements between rows that do not overlap
+                    lo[r] = hi[r] = end[r];
+                    changed = true;
+                } else if (r > 0 && start[r] > end[r - 1]) {
+                    lo[r] = end[r - 1];
+                    hi[r] = Math.max(hi[r], end[r - 1]);
+                    changed = true;
+                } else if (r > 0 && end[r] < start[r - 1]) {
+                    lo[r] = Math.min(lo[r], start[r - 1]);
+                    hi[r] = start[r - 1];
+                    changed = true;
+                }
+            }
+            if (!changed) return;
+        }
+    }
+
+    // Area plus a tenth per change of the start or end between consecutive rows
+    private static double polygonCost(int[] start, int[] end) {
+        int area = 0;
+        int changes = 0;
+        for (int r = 0; r < start.length; r++) {
+            area += end[r] - start[r] + 1;
+            if (r > 0) {
+                if (start[r] != start[r - 1]) changes++;
+                if (end[r] != end[r - 1]) changes++;
+            }
+        }
+        return area + 0.1 * changes;
+    }
+}
@@ -0,0 +1,51 @@
+package ilp.solvers;
+
+import java.util.Random;
+
+import ilp.PolygonType;
+import model.Solution;
+import model.StatementEntityInstance;
+
+/**
+ * Lays out components without Gurobi, by simulated annealing over the cells of the statements (see
+ * {@link HeuristicLayout}). The shapes satisfy the same constraints as the P* (polygons) and H* (rectangles) constraint
+ * modules. The time limit is a budget: the annealing stops early once its schedule is done, and returns null if no
+ * layout without overlapping entities or misplaced statements is found in time or the annealing stops getting closer
+ * to one, so the component is split.
+ */
+public class HeuristicSolver implements Solver {
+    private final PolygonType polygonType;
+    private final long seed;
+
+    public HeuristicSolver(PolygonType polygonType) {
+        this(polygonType, 0);
+    }
+
+    public HeuristicSolver(PolygonType polygonType, long seed) {
+        if (polygonType == PolygonType.Arbitrary) {
+            throw new IllegalArgumentException("The heuristic solver does not support arbitrary polygons");
+        }
+        this.polygonType = polygonType;
+        this.seed = seed;
+    }
+
+    @Override
+    public String describe() {
+        return "HeuristicSolver(type=" + polygonType + ", seed=" + seed + ")";
+    }
+
+    @Override
+    public Solution solve(StatementEntityInstance inst, double timeLimit, int dimensions) {
+        int maxCells = dimensions * dimensions;
+        if (inst.numberOfStatements > maxCells) {
+            System.out.println("Instance too large");
+            return null;
+        }
+
+        HeuristicLayout layout = new HeuristicLayout(inst, dimensions, polygonType);
+        if (!layout.anneal(timeLimit, new Random(seed))) {
+            return null;
+        }
+        return layout.toSolution();
+    }
+}
@@ -0,0 +1,186 @@
+package ilp.solvers;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ilp.PolygonType;
+import ilp.ThreadBudget;
+import io.StatsRecorder;
+import model.PositionedSolution;
+import model.Solution;
+
+// Arranges many components in levels, so that no arrangement ILP gets more than a group of components.
+//
+// The components are divided into groups, keeping components that share entities (the copies of an entity that was
+// duplicated by a split) together where possible. Every group is arranged on its own, concurrently, in half of the
+// time limit. The arranged groups then become blocks with a single variant, their cells, which are arranged in the
+// remaining time; in the same way if there are more blocks than fit in one group. A component ends up at its
+// position within its group plus the position of the block of the group.
+public class HierarchicalArranger {
+    // Suggested largest number of components (or blocks) that are arranged by a single ILP
+    public static final int DEFAULT_GROUP_SIZE = 12;
+
+    public static PositionedSolution arrange(ArrayList<Solution> components, PolygonType polygonType, double timeLimit,
+                                             int groupSize, boolean aggregated, StatsRecorder stats) {
+        List<List<ShapeVariant>> componentVariants = SolutionPositioner.componentVariants(components, polygonType);
+        List<Set<Integer>> entities = new ArrayList<>();
+        for (Solution component : components) {
+            entities.add(new HashSet<>(component.getEntityIds()));
+        }
+
+        SolutionPositioner.Arrangement arrangement = arrange(SolutionPositioner.variantCells(componentVariants), entities,
+                timeLimit, groupSize, aggregated, stats);
+        if (arrangement == null) {
+            return null;
+        }
+        return SolutionPositioner.place(components, componentVariants, arrangement.placements(), arrangement.width(),
+                arrangement.height());
+    }
+
+    private static SolutionPositioner.Arrangement arrange(int[][][] variantCells, List<Set<Integer>> entities,
+                                                          double timeLimit, int groupSize, boolean aggregated,
+                                                          StatsRecorder stats) {
+        if (variantCells.length <= groupSize) {
+            return SolutionPositioner.arrange(variantCells, null, timeLimit, aggregated, stats);
+        }
+        long deadline = System.nanoTime() + (long) (timeLimit * 1_000_000_000L);
+
+        List<int[]> groups = groups(variantCells, entities, groupSize);
+        System.out.println("Arranging " + variantCells.length + " components in " + groups.size() + " groups");
+
+        // The groups are independent, every model gets its share of the thread budget
+        SolutionPositioner.Arrangement[] groupArrangements = new SolutionPositioner.Arrangement[groups.size()];
+        ExecutorService workers = Executors.newFixedThreadPool(
+                Math.min(groups.size(), ThreadBudget.shared().getTotalThreads()));
+        try {
+            List<Future<SolutionPositioner.Arrangement>> futures = new ArrayList<>();
+            for (int[] group : groups) {
+                int[][][] groupCells = new int[group.length][][];
+                for (int i = 0; i < group.length; i++) {
+                    groupCells[i] = variantCells[group[i]];
+                }
+                futures.add(workers.submit(() -> SolutionPositioner.arrange(groupCells, null, timeLimit / 2, aggregated, null)));
+            }
+            for (int g = 0; g < groups.size(); g++) {
+                groupArrangements[g] = futures.get(g).get();
+                if (groupArrangements[g] == null) {
+                    System.err.println("Group " + g + " could not be arranged. Aborting.");
+                    return null;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // Every arranged group is a block, made up of the cells of its components at their positions
+        int[][][] blockCells = new int[groups.size()][1][];
+        List<Set<Integer>> blockEntities = new ArrayList<>();
+        for (int g = 0; g < groups.size(); g++) {
+            int[] group = groups.get(g);
+            int[][] placements = groupArrangements[g].placements();
+            int size = 0;
+            for (int i = 0; i < group.length; i++) {
+                size += variantCells[group[i]][placements[i][0]].length;
+            }
+            int[] cells = new int[size];
+            Set<Integer> groupEntities = new HashSet<>();
+            int n = 0;
+            for (int i = 0; i < group.length; i++) {
+                int[] componentCells = variantCells[group[i]][placements[i][0]];
+                for (int c = 0; c < componentCells.length; c += 2) {
+                    cells[n++] = componentCells[c] + placements[i][1];
+                    cells[n++] = componentCells[c + 1] + placements[i][2];
+                }
+                groupEntities.addAll(entities.get(group[i]));
+            }
+            blockCells[g][0] = cells;
+            blockEntities.add(groupEntities);
+        }
+
+        double remaining = Math.max(0, (deadline - System.nanoTime()) / 1_000_000_000.0);
+        SolutionPositioner.Arrangement blocks = arrange(blockCells, blockEntities, remaining, groupSize, aggregated, stats);
+        if (blocks == null) {
+            return null;
+        }
+
+        int[][] placements = new int[variantCells.length][];
+        for (int g = 0; g < groups.size(); g++) {
+            int[] group = groups.get(g);
+            int[] block = blocks.placements()[g];
+            for (int i = 0; i < group.length; i++) {
+                int[] placement = groupArrangements[g].placements()[i];
+                placements[group[i]] = new int[]{placement[0], placement[1] + block[1], placement[2] + block[2]};
+            }
+        }
+        return new SolutionPositioner.Arrangement(placements, blocks.width(), blocks.height());
+    }
+
+    // Divides the components into as few groups of at most groupSize components as first fit allows. Components that
+    // share entities form clusters, which are put into the groups largest first; clusters that are too large for a
+    // group are cut into groups of their largest components first.
+    private static List<int[]> groups(int[][][] variantCells, List<Set<Integer>> entities, int groupSize) {
+        int n = variantCells.length;
+        int[] parent = new int[n];
+        for (int s = 0; s < n; s++) parent[s] = s;
+        Map<Integer, Integer> componentOfEntity = new HashMap<>();
+        for (int s = 0; s < n; s++) {
+            for (int entity : entities.get(s)) {
+                Integer other = componentOfEntity.putIfAbsent(entity, s);
+                if (other != null) {
+                    parent[find(parent, s)] = find(parent, other);
+                }
+            }
+        }
+
+        Map<Integer, List<Integer>> clusterOfRoot = new LinkedHashMap<>();
+        for (int s = 0; s < n; s++) {
+            clusterOfRoot.computeIfAbsent(find(parent, s), r -> new ArrayList<>()).add(s);
+        }
+
+        // Cut the clusters to size, with the components of every cluster by decreasing area
+        List<List<Integer>> clusters = new ArrayList<>();
+        for (List<Integer> cluster : clusterOfRoot.values()) {
+            cluster.sort(Comparator.comparingInt((Integer s) -> -variantCells[s][0].length).thenComparingInt(s -> s));
+            for (int i = 0; i < cluster.size(); i += groupSize) {
+                clusters.add(new ArrayList<>(cluster.subList(i, Math.min(cluster.size(), i + groupSize))));
+            }
+        }
+        clusters.sort(Comparator.comparingInt((List<Integer> cluster) -> -cluster.size()));
+
+        List<List<Integer>> groups = new ArrayList<>();
+        for (List<Integer> cluster : clusters) {
+            List<Integer> fit = null;
+            for (List<Integer> group : groups) {
+                if (group.size() + cluster.size() <= groupSize) {
+                    fit = group;
+                    break;
+                }
+            }
+            if (fit == null) {
+                fit = new ArrayList<>();
+                groups.add(fit);
+            }
+            fit.addAll(cluster);
+        }
+
+        List<int[]> result = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            result.add(group.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return result;
+    }
+
+    private static int find(int[] parent, int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+}
@@ -0,0 +1,104 @@
+package ilp.solvers;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBException;
+
+import ilp.ModelContext;
+import ilp.PolygonType;
+import ilp.variables.VarsPolygons;
+import ilp.variables.VarsRectangles;
+import model.PolygonSolution;
+import model.RectangleSolution;
+import model.Solution;
+import model.StatementEntityInstance;
+
+// Heuristic layouts (see HeuristicLayout) handed to Gurobi as MIP start, so the search starts from a feasible
+// incumbent instead of a cold model.
+final class MipStart {
+    // Share of a component's time limit that may be spent on the heuristic
+    static final double TIME_FRACTION = 0.1;
+
+    private MipStart() {
+    }
+
+    // A layout without violations on a grid of dimensions x dimensions cells, or null if none was found in time
+    static HeuristicLayout layout(StatementEntityInstance inst, int dimensions, PolygonType shapes, double timeLimit) {
+        if (inst.numberOfStatements > dimensions * dimensions) return null;
+        HeuristicLayout layout = new HeuristicLayout(inst, dimensions, shapes);
+        return layout.anneal(TIME_FRACTION * timeLimit, new Random(0)) ? layout : null;
+    }
+
+    // Sets the Start attribute of the layout variables of the model. Auxiliary variables of the constraint modules
+    // are left to Gurobi, which completes the partial start. Returns whether a start was set.
+    static boolean set(ModelContext ctx, PolygonType shapes, double timeLimit) throws GRBException {
+        HeuristicLayout layout = layout(ctx.inst, ctx.dimensions + 1, shapes, timeLimit);
+        if (layout == null) return false;
+        Solution start = layout.toSolution();
+
+        if (ctx.v instanceof VarsRectangles v && start instanceof RectangleSolution sol) {
+            int[][] statements = inReadingOrder(ctx, sol.statementCoordinates);
+            for (int i = 0; i < ctx.statementIds.size(); i++) {
+                v.statementCoordinates[i][0].set(GRB.DoubleAttr.Start, statements[i][0]);
+                v.statementCoordinates[i][1].set(GRB.DoubleAttr.Start, statements[i][1]);
+            }
+            for (int i = 0; i < ctx.entityIds.size(); i++) {
+                for (int k = 0; k < 4; k++) {
+                    v.entityCoordinates[i][k].set(GRB.DoubleAttr.Start, sol.entityCoordinates[i][k]);
+                }
+            }
+            v.maxWidth.set(GRB.DoubleAttr.Start, sol.w);
+            v.maxHeight.set(GRB.DoubleAttr.Start, sol.h);
+            v.diff.set(GRB.DoubleAttr.Start, Math.abs(sol.w - sol.h));
+            return true;
+        }
+
+        if (ctx.v instanceof VarsPolygons v && start instanceof PolygonSolution sol) {
+            int[][] statements = inReadingOrder(ctx, sol.statementCoordinates);
+            for (int i = 0; i < ctx.statementIds.size(); i++) {
+                int y = statements[i][1];
+                v.statementCoordinates[i][0].set(GRB.DoubleAttr.Start, statements[i][0]);
+                v.statementCoordinates[i][1].set(GRB.DoubleAttr.Start, y);
+                for (int j = 0; j <= ctx.dimensions; j++) {
+                    v.statementIsOnRow[i][j].set(GRB.DoubleAttr.Start, y == j ? 1.0 : 0.0);
+                }
+            }
+            for (int i = 0; i < ctx.entityIds.size(); i++) {
+                for (int j = 0; j <= ctx.dimensions; j++) {
+                    int[] row = sol.entities[i][j];
+                    boolean active = row[0] == 1;
+                    v.entities[i].activeRows[j].set(GRB.DoubleAttr.Start, active ? 1.0 : 0.0);
+                    v.entities[i].rowBounds[j][0].set(GRB.DoubleAttr.Start, active ? row[1] : 0);
+                    v.entities[i].rowBounds[j][1].set(GRB.DoubleAttr.Start, active ? row[2] : 0);
+                    v.entities[i].rowSpans[j].set(GRB.DoubleAttr.Start, active ? row[2] - row[1] + 1 : 0);
+                }
+            }
+            v.maxWidth.set(GRB.DoubleAttr.Start, sol.w);
+            v.maxHeight.set(GRB.DoubleAttr.Start, sol.h);
+            v.diff.set(GRB.DoubleAttr.Start, Math.abs(sol.w - sol.h));
+            return true;
+        }
+
+        return false;
+    }
+
+    // The statement positions, with the statements of every class of interchangeable statements swapped such that
+    // they are in reading order, as C1StatementsDistinctCoordinates requires
+    private static int[][] inReadingOrder(ModelContext ctx, int[][] statementCoordinates) {
+        int[][] ordered = statementCoordinates.clone();
+        for (int[] statements : ctx.incidence.statementClasses()) {
+            int[][] positions = new int[statements.length][];
+            for (int k = 0; k < statements.length; k++) {
+                positions[k] = statementCoordinates[statements[k]];
+            }
+            Arrays.sort(positions, Comparator.comparingInt((int[] p) -> p[1]).thenComparingInt(p -> p[0]));
+            for (int k = 0; k < statements.length; k++) {
+                ordered[statements[k]] = positions[k];
+            }
+        }
+        return ordered;
+    }
+}
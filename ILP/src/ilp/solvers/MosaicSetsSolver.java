@@ -1,6 +1,7 @@
 package ilp.solvers;
 
 import com.gurobi.gurobi.GRBException;
+import ilp.PolygonType;
 import ilp.solvers.mosaicsets.Grid;
 import ilp.solvers.mosaicsets.GridCanvas;
 import ilp.solvers.mosaicsets.SetEmbedder;
@@ -33,11 +34,23 @@ public class MosaicSetsSolver implements Solver {
     /// The number of ILP iterations (for the eccentricity-based compactness measure)
     private final int iterations;
 
+    // Start the first iteration from a heuristic layout with orthoconvex sets (which are connected), and record
+    // the time to its first incumbent in stats if set
+    private final boolean warmStart;
+    private final StatsRecorder stats;
+
     // Do not sample the project on the k-gon. Instead place them in the center
     // of gravity
     boolean projects_centered = true;
 
     public MosaicSetsSolver(double maxMIPgapInitIt, double maxMIPgapSubseqIt, boolean renderMosaicSetsSvgs, boolean minPerimeter) {
+        this(maxMIPgapInitIt, maxMIPgapSubseqIt, renderMosaicSetsSvgs, minPerimeter, false, null);
+    }
+
+    public MosaicSetsSolver(double maxMIPgapInitIt, double maxMIPgapSubseqIt, boolean renderMosaicSetsSvgs, boolean minPerimeter,
+                            boolean warmStart, StatsRecorder stats) {
+        this.warmStart = warmStart;
+        this.stats = stats;
         this.maxMIPgapSubseqIt = maxMIPgapSubseqIt;
         this.maxMIPgapInitIt = maxMIPgapInitIt;
         this.renderMosaicSetsSvgs = renderMosaicSetsSvgs;
@@ -45,10 +58,19 @@ public class MosaicSetsSolver implements Solver {
         this.iterations = minPerimeter ? 1 : 5;
     }
 
+    @Override
+    public String describe() {
+        return "MosaicSetsSolver(gapInit=" + maxMIPgapInitIt + ", gapSubseq=" + maxMIPgapSubseqIt
+                + ", minPerimeter=" + minPerimeter + ", iterations=" + iterations + ", gridSize=" + gridSize
+                + ", centered=" + projects_centered + ")";
+    }
+
     /// Uses the eccentricity-based compactness measure
     @Override
     public Solution solve(StatementEntityInstance inst, double timeLimit, int dimensions) throws Exception, GRBException {
         SetEmbedder.MINIMIZE_BOUNDARIES = minPerimeter;
+        // Components may be solved concurrently, so each thread writes its model files under its own name
+        String runPath = resultPath + Thread.currentThread().getName() + "_";
         Grid grid = new Grid(dimensions, dimensions, gridSize, 0.0, 0.0, Grid.TYPE_SQUARE);
 
         List<Set<String>> basemap = new ArrayList<>();
@@ -89,9 +111,25 @@ public class MosaicSetsSolver implements Solver {
                     basemap.size() + overlays.size(), 1);
         }
 
+        long beforeStart = System.nanoTime();
+        boolean warmStarted = false;
+        if (warmStart) {
+            HeuristicLayout layout = MipStart.layout(inst, dimensions, PolygonType.Orthoconvex, timeLimit);
+            if (layout != null) {
+                ge.startPositions = startPositions(inst, layout, grid);
+                warmStarted = true;
+            }
+        }
+        double startTimeS = (System.nanoTime() - beforeStart) / 1_000_000_000.0;
+
         long startTime = System.currentTimeMillis(), endTimeFirst = 0,
                 endTimeSecond = 0;
-        Map<Point2D.Double, String> solution = ge.optimize(timeLimit, maxMIPgapInitIt, centers, resultPath);
+        // The heuristic layout counts towards the time limit
+        Map<Point2D.Double, String> solution = ge.optimize(Math.max(timeLimit - startTimeS, 0), maxMIPgapInitIt,
+                centers, runPath);
+        if (stats != null) {
+            stats.recordFirstIncumbent(warmStarted, ge.firstIncumbent < 0 ? ge.firstIncumbent : startTimeS + ge.firstIncumbent);
+        }
         if (solution == null) {
             return null;
         }
@@ -101,7 +139,7 @@ public class MosaicSetsSolver implements Solver {
             usedCenters = getCenters(solution, ge.sets);
 
             // Use the second optimize with mean center positions
-            var newSolution = ge.optimize(timeLimit, maxMIPgapSubseqIt, usedCenters, true, resultPath);
+            var newSolution = ge.optimize(timeLimit, maxMIPgapSubseqIt, usedCenters, true, runPath);
             if (newSolution != null) {
                 solution = newSolution;
             } else {
@@ -198,12 +236,29 @@ public class MosaicSetsSolver implements Solver {
                     usedCenters, instituteFillColors, projectArcColors, drawGrid,
                     drawOutline, false, arcOrder, borderColor, borderSize, true,
                     maxFontSize, fontColor, false, false);
-            gc.export(resultPath + "gridset.svg");
+            gc.export(runPath + "gridset.svg");
         }
 
         return new ArbitraryPolygonSolution(inst, entityIds, entityCells, statementCoordinates);
     }
 
+    // The grid vertex of every statement in the heuristic layout, keyed by statement text like the sets
+    private Map<String, Point2D.Double> startPositions(StatementEntityInstance inst, HeuristicLayout layout, Grid grid) {
+        Map<Point, Point2D.Double> vertices = new HashMap<>();
+        for (Point2D.Double vertex : grid.graph.vertexSet()) {
+            vertices.put(new Point((int) Math.round(vertex.x / gridSize), (int) Math.round(vertex.y / gridSize)), vertex);
+        }
+
+        Map<String, Point2D.Double> positions = new HashMap<>();
+        int[][] coordinates = layout.statementCoordinates();
+        int k = 0;
+        for (var statement : inst.statements.values()) {
+            positions.put(statement, vertices.get(new Point(coordinates[k][0], coordinates[k][1])));
+            k++;
+        }
+        return positions;
+    }
+
     /**
      * Computes the geometric center of each individual set.
      *
@@ -4,7 +4,11 @@ import java.util.List;
 
 import com.gurobi.gurobi.*;
 
+import ilp.FirstIncumbentCallback;
+import ilp.LazyConstraintCallback;
+import ilp.ModelBounds;
 import ilp.ModelContext;
+import ilp.PolygonType;
 import ilp.constraints.*;
 import ilp.objective.*;
 import io.StatsRecorder;
@@ -23,6 +27,13 @@ public class OrthoconvexSolver implements Solver {
 
     private final ObjectiveModule objective;
 
+    // Shapes of the heuristic layout that is given to Gurobi as MIP start, or null to start from a cold model
+    private final PolygonType warmStart;
+    // Records the time to the first incumbent of every model, if set
+    private final StatsRecorder stats;
+    // Add the constraints of modules that can do so lazily, when an incumbent violates them
+    private final boolean lazyConstraints;
+
     // Constructor with default constraints and objective (produces rectangle
     // solutions)
     public OrthoconvexSolver(int solutionType) {
@@ -39,15 +50,50 @@ public class OrthoconvexSolver implements Solver {
                 new H10Squareness());
         this.objective = new CompactSquareTopLeft();
         this.solutionType = solutionType;
+        this.warmStart = null;
+        this.stats = null;
+        this.lazyConstraints = false;
     }
 
     // Constructor that allows you to define your own list of constraints and
     // objective function
     public OrthoconvexSolver(List<ConstraintModule> constraints, ObjectiveModule objective,
                              int solutionType) {
+        this(constraints, objective, solutionType, null, null);
+    }
+
+    // Same, but every model starts from a heuristic layout with the given shapes (which should satisfy the
+    // constraints), and the time to the first incumbent is recorded in stats (both may be null)
+    public OrthoconvexSolver(List<ConstraintModule> constraints, ObjectiveModule objective,
+                             int solutionType, PolygonType warmStart, StatsRecorder stats) {
+        this(constraints, objective, solutionType, warmStart, stats, false);
+    }
+
+    // Same, but with lazyConstraints set the modules that implement LazyConstraintModule add their constraints from
+    // a callback, once an incumbent violates them
+    public OrthoconvexSolver(List<ConstraintModule> constraints, ObjectiveModule objective,
+                             int solutionType, PolygonType warmStart, StatsRecorder stats, boolean lazyConstraints) {
         this.constraints = constraints;
         this.objective = objective;
         this.solutionType = solutionType;
+        this.warmStart = warmStart;
+        this.stats = stats;
+        this.lazyConstraints = lazyConstraints;
+    }
+
+    @Override
+    public String describe() {
+        StringBuilder description = new StringBuilder("OrthoconvexSolver(type=" + solutionType);
+        description.append(", gridMin=").append(gridMin).append(", maxSizeSum=").append(maxSizeSum)
+                .append(", wTopLeft=").append(wTopLeft).append(", wMaxExtents=").append(wMaxExtents);
+        description.append(", constraints=");
+        for (ConstraintModule c : constraints)
+            description.append(c.name()).append(';');
+        description.append(" objective=").append(objective.getClass().getSimpleName());
+        if (lazyConstraints)
+            description.append(", lazy");
+        description.append(')');
+        return description.toString();
     }
 
     @Override
@@ -60,9 +106,17 @@ public class OrthoconvexSolver implements Solver {
 
         try (ModelContext ctx = new ModelContext(inst, dimensions - 1, gridMin, maxSizeSum, wTopLeft, wMaxExtents,
                 solutionType)) {
+            // Presolve: the bounds that follow from the sizes of the sets
+            ModelBounds.tighten(ctx);
+
             // Add constraints
-            for (ConstraintModule c : constraints)
-                c.add(ctx);
+            LazyConstraintCallback lazy = new LazyConstraintCallback();
+            for (ConstraintModule c : constraints) {
+                if (lazyConstraints && c instanceof LazyConstraintModule l)
+                    lazy.addSeparator(l.addLazy(ctx));
+                else
+                    c.add(ctx);
+            }
 
             // Objective
             objective.apply(ctx);
@@ -77,15 +131,34 @@ public class OrthoconvexSolver implements Solver {
             // return null;
             // }
 
-            // Set time limit
-             ctx.model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+            // Take this model's share of the cores, other components may be solved at the same time
+            ctx.assignThreads();
 
             // Set callback to save solutions when found
             // SaveSolutionCallback cb = new SaveSolutionCallback(ctx, solutionType);
             // ctx.model.setCallback(cb);  
 
+            // Start from a heuristic layout, the time it takes counts towards the time to the first incumbent
+            long beforeStart = System.nanoTime();
+            boolean warmStarted = warmStart != null && MipStart.set(ctx, warmStart, timeLimit);
+            double startTimeS = (System.nanoTime() - beforeStart) / 1_000_000_000.0;
+
+            // Set time limit, what is left of it after the heuristic layout
+            ctx.model.set(GRB.DoubleParam.TimeLimit, Math.max(timeLimit - startTimeS, 0));
+            FirstIncumbentCallback firstIncumbent = lazy.isEmpty() ? new FirstIncumbentCallback() : lazy;
+            if (!lazy.isEmpty())
+                ctx.model.set(GRB.IntParam.LazyConstraints, 1);
+            ctx.model.setCallback(firstIncumbent);
+
             // Solve
             ctx.model.optimize();
+            if (lazy.failure() != null) {
+                throw new Exception("Lazy constraints could not be added", lazy.failure());
+            }
+            if (stats != null) {
+                double seconds = firstIncumbent.firstIncumbent();
+                stats.recordFirstIncumbent(warmStarted, seconds < 0 ? seconds : startTimeS + seconds);
+            }
             int status = ctx.model.get(GRB.IntAttr.Status);
             int solCount = ctx.model.get(GRB.IntAttr.SolCount);
 
@@ -0,0 +1,251 @@
+package ilp.solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import ilp.PolygonType;
+import model.PositionedSolution;
+import model.Solution;
+
+// Arranges the components without Gurobi, with a skyline heuristic over the cells of their variants.
+//
+// The components are placed one at a time, largest first, on a canvas of a fixed width. Every variant is tried at
+// every x, dropped down as far as the cells that are already placed in its columns allow, and the placement whose
+// bottom ends up highest is taken. Ties are broken by the increase of the objective of the arrangement ILP: the
+// bounding box (weighted by SolutionPositioner.SIZE_WEIGHT, as in the ILP), the gaps in the orthoconvex hull of the
+// rows and columns and the difference between width and height. This is done for a few canvas widths and the
+// arrangement with the lowest objective is kept. The result is also used as MIP start for the ILP.
+public class PackingArranger {
+    // Canvas widths that are tried, relative to the square root of the total area of the components
+    private static final double[] WIDTH_FACTORS = {1.0, 1.25, SolutionPositioner.CANVAS_SLACK, 2.0};
+
+    public static PositionedSolution arrange(ArrayList<Solution> components, PolygonType polygonType) {
+        List<List<ShapeVariant>> componentVariants = SolutionPositioner.componentVariants(components, polygonType);
+        Packing packing = pack(SolutionPositioner.variantCells(componentVariants));
+        System.out.println("Bounding Box: " + packing.maxX + " x " + packing.maxY);
+        return SolutionPositioner.place(components, componentVariants, packing.placements, packing.maxX, packing.maxY);
+    }
+
+    // {variant, x, y} of every component, with x and y the offset of the variant as in SolutionPositioner, and the
+    // bounding box
+    static SolutionPositioner.Arrangement arrangement(int[][][] variantCells) {
+        Packing packing = pack(variantCells);
+        return new SolutionPositioner.Arrangement(packing.placements, packing.maxX, packing.maxY);
+    }
+
+    private static Packing pack(int[][][] variantCells) {
+        int n = variantCells.length;
+        Shape[][] shapes = new Shape[n][];
+        int area = 0;
+        int minWidth = 1;
+        int totalHeight = 0;
+        for (int s = 0; s < n; s++) {
+            shapes[s] = new Shape[variantCells[s].length];
+            int narrowest = Integer.MAX_VALUE;
+            int tallest = 0;
+            for (int v = 0; v < shapes[s].length; v++) {
+                shapes[s][v] = new Shape(variantCells[s][v]);
+                narrowest = Math.min(narrowest, shapes[s][v].width);
+                tallest = Math.max(tallest, shapes[s][v].height);
+            }
+            area += shapes[s][0].size;
+            minWidth = Math.max(minWidth, narrowest);
+            totalHeight += tallest;
+        }
+
+        // Largest components first
+        Integer[] order = new Integer[n];
+        for (int s = 0; s < n; s++) order[s] = s;
+        Arrays.sort(order, Comparator.comparingInt((Integer s) -> -shapes[s][0].size).thenComparingInt(s -> s));
+
+        Packing best = null;
+        for (double factor : WIDTH_FACTORS) {
+            int width = Math.max(minWidth, (int) Math.ceil(factor * Math.sqrt(area)));
+            Packing packing = new Packing(width, totalHeight, n);
+            for (int s : order) {
+                packing.placeBest(s, shapes[s]);
+            }
+            if (best == null || packing.cost() < best.cost()) {
+                best = packing;
+            }
+        }
+        return best;
+    }
+
+    // Cells of a variant relative to the top left corner of its bounding box
+    private static class Shape {
+        final int offsetX;
+        final int offsetY;
+        final int width;
+        final int height;
+        final int size;
+        // Topmost cell of every column, and the extent of every row and column (-1 if empty)
+        final int[] top;
+        final int[] rowMin;
+        final int[] rowMax;
+        final int[] columnMin;
+        final int[] columnMax;
+
+        Shape(int[] cellOffsets) {
+            int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+            for (int i = 0; i < cellOffsets.length; i += 2) {
+                minX = Math.min(minX, cellOffsets[i]);
+                maxX = Math.max(maxX, cellOffsets[i]);
+                minY = Math.min(minY, cellOffsets[i + 1]);
+                maxY = Math.max(maxY, cellOffsets[i + 1]);
+            }
+            if (cellOffsets.length == 0) {
+                minX = maxX = minY = maxY = 0;
+            }
+            offsetX = minX;
+            offsetY = minY;
+            width = maxX - minX + 1;
+            height = maxY - minY + 1;
+            size = cellOffsets.length / 2;
+
+            top = new int[width];
+            rowMin = new int[height];
+            rowMax = new int[height];
+            columnMin = new int[width];
+            columnMax = new int[width];
+            Arrays.fill(top, -1);
+            Arrays.fill(rowMin, -1);
+            Arrays.fill(rowMax, -1);
+            Arrays.fill(columnMin, -1);
+            Arrays.fill(columnMax, -1);
+            for (int i = 0; i < cellOffsets.length; i += 2) {
+                int x = cellOffsets[i] - minX;
+                int y = cellOffsets[i + 1] - minY;
+                if (top[x] == -1 || y < top[x]) top[x] = y;
+                if (rowMin[y] == -1 || x < rowMin[y]) rowMin[y] = x;
+                rowMax[y] = Math.max(rowMax[y], x);
+                if (columnMin[x] == -1 || y < columnMin[x]) columnMin[x] = y;
+                columnMax[x] = Math.max(columnMax[x], y);
+            }
+        }
+    }
+
+    // Partial arrangement on a canvas of a fixed width
+    private static class Packing {
+        final int width;
+        // Number of occupied rows from the top in every column, i.e. the first row below all cells of the column
+        final int[] skyline;
+        // Extent of the occupied cells in every row and column (-1 if empty)
+        final int[] rowMin;
+        final int[] rowMax;
+        final int[] columnMin;
+        final int[] columnMax;
+        int maxX = -1;
+        int maxY = -1;
+        int hullGaps = 0;
+        final int[][] placements;
+
+        Packing(int width, int maxHeight, int nComponents) {
+            this.width = width;
+            skyline = new int[width];
+            rowMin = new int[maxHeight];
+            rowMax = new int[maxHeight];
+            columnMin = new int[width];
+            columnMax = new int[width];
+            Arrays.fill(rowMin, -1);
+            Arrays.fill(rowMax, -1);
+            Arrays.fill(columnMin, -1);
+            Arrays.fill(columnMax, -1);
+            placements = new int[nComponents][];
+        }
+
+        double cost() {
+            return SolutionPositioner.SIZE_WEIGHT * (maxX + maxY) + hullGaps + Math.abs(maxX - maxY);
+        }
+
+        // Places the component in the variant and at the position where its bottom ends up highest, and among those
+        // where it increases the cost the least
+        void placeBest(int component, Shape[] variants) {
+            int bestVariant = -1, bestX = 0, bestY = 0, bestBottom = Integer.MAX_VALUE;
+            double bestIncrease = Double.MAX_VALUE;
+            for (int v = 0; v < variants.length; v++) {
+                Shape shape = variants[v];
+                for (int x = 0; x + shape.width <= width; x++) {
+                    int y = dropHeight(shape, x);
+                    int bottom = y + shape.height;
+                    if (bottom > bestBottom) continue;
+                    double increase = costIncrease(shape, x, y);
+                    if (bottom < bestBottom || increase < bestIncrease
+                            || (increase == bestIncrease && (y < bestY || (y == bestY && x < bestX)))) {
+                        bestBottom = bottom;
+                        bestIncrease = increase;
+                        bestVariant = v;
+                        bestX = x;
+                        bestY = y;
+                    }
+                }
+            }
+
+            Shape shape = variants[bestVariant];
+            hullGaps += hullIncrease(shape, bestX, bestY);
+            for (int c = 0; c < shape.width; c++) {
+                if (shape.top[c] == -1) continue;
+                int gx = bestX + c;
+                skyline[gx] = Math.max(skyline[gx], bestY + shape.columnMax[c] + 1);
+                columnMin[gx] = columnMin[gx] == -1 ? bestY + shape.columnMin[c] : Math.min(columnMin[gx], bestY + shape.columnMin[c]);
+                columnMax[gx] = Math.max(columnMax[gx], bestY + shape.columnMax[c]);
+            }
+            for (int r = 0; r < shape.height; r++) {
+                if (shape.rowMin[r] == -1) continue;
+                int gy = bestY + r;
+                rowMin[gy] = rowMin[gy] == -1 ? bestX + shape.rowMin[r] : Math.min(rowMin[gy], bestX + shape.rowMin[r]);
+                rowMax[gy] = Math.max(rowMax[gy], bestX + shape.rowMax[r]);
+            }
+            maxX = Math.max(maxX, bestX + shape.width - 1);
+            maxY = Math.max(maxY, bestY + shape.height - 1);
+            placements[component] = new int[]{bestVariant, bestX - shape.offsetX, bestY - shape.offsetY};
+        }
+
+        // Highest y at which the shape lies below all cells in its columns
+        private int dropHeight(Shape shape, int x) {
+            int y = 0;
+            for (int c = 0; c < shape.width; c++) {
+                if (shape.top[c] == -1) continue;
+                y = Math.max(y, skyline[x + c] - shape.top[c]);
+            }
+            return y;
+        }
+
+        private double costIncrease(Shape shape, int x, int y) {
+            int newMaxX = Math.max(maxX, x + shape.width - 1);
+            int newMaxY = Math.max(maxY, y + shape.height - 1);
+            return SolutionPositioner.SIZE_WEIGHT * (newMaxX - maxX + newMaxY - maxY)
+                    + Math.abs(newMaxX - newMaxY) - Math.abs(maxX - maxY)
+                    + hullIncrease(shape, x, y);
+        }
+
+        private int hullIncrease(Shape shape, int x, int y) {
+            int increase = 0;
+            for (int r = 0; r < shape.height; r++) {
+                if (shape.rowMin[r] == -1) continue;
+                int gy = y + r;
+                int min = x + shape.rowMin[r];
+                int max = x + shape.rowMax[r];
+                if (rowMin[gy] == -1) {
+                    increase += max - min;
+                } else {
+                    increase += Math.max(max, rowMax[gy]) - Math.min(min, rowMin[gy]) - (rowMax[gy] - rowMin[gy]);
+                }
+            }
+            for (int c = 0; c < shape.width; c++) {
+                if (shape.columnMin[c] == -1) continue;
+                int gx = x + c;
+                int min = y + shape.columnMin[c];
+                int max = y + shape.columnMax[c];
+                if (columnMin[gx] == -1) {
+                    increase += max - min;
+                } else {
+                    increase += Math.max(max, columnMax[gx]) - Math.min(min, columnMin[gx]) - (columnMax[gx] - columnMin[gx]);
+                }
+            }
+            return increase;
+        }
+    }
+}
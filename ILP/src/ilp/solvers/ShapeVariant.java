@@ -0,0 +1,97 @@
+package ilp.solvers;
+
+import java.util.Arrays;
+
+import model.Solution;
+
+// A rotation and/or mirror image of a component, described by the cells it occupies: the component is rotated
+// clockwise the given number of times and then mirrored, as rotate90 and mirror do. Only the variant that is chosen
+// is materialised as a Solution.
+//
+// Variants are equal iff they have the same shape, i.e. the same cells up to translation. The shape is kept as a
+// bitmap of the cells in their bounding box, so deduplicating variants takes a hash lookup.
+final class ShapeVariant {
+    final Solution component;
+    final int rotations;
+    final boolean mirrorX;
+    final boolean mirrorY;
+    // Cells of the variant as {x0, y0, x1, y1, ...}, as getCells of the materialised variant would give them
+    final int[] cells;
+
+    // Bounding box of the cells and the bitmap of the cells in it, row by row
+    private final int width;
+    private final int height;
+    private final long[] bitmap;
+    private final int hash;
+
+    // componentCells are the cells of the component itself, which is w x h (as getW and getH) before rotation
+    ShapeVariant(Solution component, int[] componentCells, int rotations, boolean mirrorX, boolean mirrorY) {
+        this.component = component;
+        this.rotations = rotations;
+        this.mirrorX = mirrorX;
+        this.mirrorY = mirrorY;
+
+        int w = component.getW();
+        int h = component.getH();
+        cells = componentCells.clone();
+        for (int r = 0; r < rotations; r++) {
+            for (int i = 0; i < cells.length; i += 2) {
+                int x = cells[i];
+                cells[i] = cells[i + 1];
+                cells[i + 1] = w - x;
+            }
+            int swap = w;
+            w = h;
+            h = swap;
+        }
+        for (int i = 0; i < cells.length; i += 2) {
+            if (mirrorX) cells[i] = w - cells[i];
+            if (mirrorY) cells[i + 1] = h - cells[i + 1];
+        }
+
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < cells.length; i += 2) {
+            minX = Math.min(minX, cells[i]);
+            maxX = Math.max(maxX, cells[i]);
+            minY = Math.min(minY, cells[i + 1]);
+            maxY = Math.max(maxY, cells[i + 1]);
+        }
+        if (cells.length == 0) {
+            minX = minY = 0;
+            maxX = maxY = -1;
+        }
+        width = maxX - minX + 1;
+        height = maxY - minY + 1;
+        bitmap = new long[(width * height + 63) / 64];
+        for (int i = 0; i < cells.length; i += 2) {
+            int bit = (cells[i + 1] - minY) * width + cells[i] - minX;
+            bitmap[bit >> 6] |= 1L << (bit & 63);
+        }
+        hash = 31 * (31 * width + height) + Arrays.hashCode(bitmap);
+    }
+
+    // A copy of the component, transformed into this variant
+    Solution materialise() {
+        Solution variant = component.copy();
+        for (int r = 0; r < rotations; r++) {
+            variant.rotate90();
+        }
+        if (mirrorX || mirrorY) {
+            variant.mirror(mirrorX, mirrorY);
+        }
+        return variant;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ShapeVariant other)) return false;
+        return hash == other.hash && width == other.width && height == other.height
+                && Arrays.equals(bitmap, other.bitmap);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -4,212 +4,312 @@ import java.awt.Point;
 import java.util.*;
 
 import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBConstr;
 import com.gurobi.gurobi.GRBEnv;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBLinExpr;
 import com.gurobi.gurobi.GRBModel;
 import com.gurobi.gurobi.GRBVar;
 
+import ilp.EnvPool;
 import ilp.PolygonType;
+import ilp.ThreadBudget;
+import io.StatsRecorder;
 import model.*;
 
 public class SolutionPositioner {
-    static final int GRID_WIDTH = 30;
-    static final int GRID_HEIGHT = 30;
+    // Initial canvas side relative to the square root of the total area of the components
+    static final double CANVAS_SLACK = 1.5;
+    // The canvas side grows by a 1 / CANVAS_GROWTH fraction (at least one cell) when the components do not fit
+    static final int CANVAS_GROWTH = 4;
+    // Objective weight of the width and height of the arrangement, the side of the fixed 30 x 30 grid of the
+    // original formulation, so that the objective does not depend on how far the canvas grows
+    static final int SIZE_WEIGHT = 30;
 
     public static PositionedSolution computeCompleteSolution(ArrayList<Solution> components, PolygonType polygonType, double timeLimit) {
-        final int nSolutions = components.size();
-        int[][] solutionCoordinates = new int[nSolutions][2];
+        return computeCompleteSolution(components, polygonType, timeLimit, null);
+    }
 
-        ArrayList<ArrayList<Solution>> componentVariants = new ArrayList<>();
+    // warmStart optionally gives a previous placement {variant, x, y} per component (null entries for components
+    // without one), e.g. from PositionedSolution.placements of an earlier run on the same components
+    public static PositionedSolution computeCompleteSolution(ArrayList<Solution> components, PolygonType polygonType, double timeLimit,
+                                                             int[][] warmStart) {
+        return computeCompleteSolution(components, polygonType, timeLimit, warmStart, false, null);
+    }
 
-        for (int i = 0; i < nSolutions; i++) {
-            ArrayList<Solution> variants = new ArrayList<>();
-            var sol = components.get(i);
-            addIfDistinct(variants, sol);
+    // aggregated selects the compact formulation on cell occupancy variables instead of the formulation with bounding
+    // box constraints for every placement that covers a cell. The size of the model and whether it was solved to
+    // optimality are recorded in stats, if given.
+    public static PositionedSolution computeCompleteSolution(ArrayList<Solution> components, PolygonType polygonType, double timeLimit,
+                                                             int[][] warmStart, boolean aggregated, StatsRecorder stats) {
+        List<List<ShapeVariant>> componentVariants = componentVariants(components, polygonType);
+        Arrangement arrangement = arrange(variantCells(componentVariants), warmStart, timeLimit, aggregated, stats);
+        if (arrangement == null) {
+            return null;
+        }
+        return place(components, componentVariants, arrangement.placements(), arrangement.width(), arrangement.height());
+    }
 
-            if (polygonType == PolygonType.Arbitrary || polygonType == PolygonType.Orthoconvex) {
-                addIfDistinct(variants, sol.mirrored(false, true));
-                addIfDistinct(variants, sol.mirrored(true, true));
+    // Placements {variant, x, y} of the components and the bounding box (0-based dimensions, as W and H)
+    record Arrangement(int[][] placements, int width, int height) {
+    }
+
+    // Cells of every variant of every component, as ShapeVariant.cells
+    static int[][][] variantCells(List<List<ShapeVariant>> componentVariants) {
+        int[][][] variantCells = new int[componentVariants.size()][][];
+        for (int s = 0; s < variantCells.length; s++) {
+            List<ShapeVariant> variants = componentVariants.get(s);
+            variantCells[s] = new int[variants.size()][];
+            for (int v = 0; v < variants.size(); v++) {
+                variantCells[s][v] = variants.get(v).cells;
             }
-            if (polygonType == PolygonType.Arbitrary || polygonType == PolygonType.Orthoconvex || polygonType == PolygonType.Nabla) {
-                addIfDistinct(variants, sol.mirrored(true, false));
+        }
+        return variantCells;
+    }
+
+    // Arranges the components given by the cells of their variants, null if no arrangement was found
+    static Arrangement arrange(int[][][] variantCells, int[][] warmStart, double timeLimit, boolean aggregated,
+                               StatsRecorder stats) {
+        final int nSolutions = variantCells.length;
+
+        // Without a warm start, start from the arrangement of the packing heuristic
+        Arrangement packing = null;
+        if (warmStart == null) {
+            packing = PackingArranger.arrangement(variantCells);
+            warmStart = packing.placements();
+        }
+
+        // Canvas: a square that is at least as large as the total area of the components, in which every component
+        // fits in some variant, and which contains the warm start. If the components do not fit, the canvas grows;
+        // they certainly fit once it is as wide as all components next to each other.
+        int area = 0;
+        int minSide = 1;
+        int maxSide = 0;
+        for (int s = 0; s < nSolutions; s++) {
+            int smallestExtent = Integer.MAX_VALUE;
+            for (int v = 0; v < variantCells[s].length; v++) {
+                int[] range = positionRange(variantCells[s][v], 0);
+                // At side 0 the range is {-minX, -1 - maxX, -minY, -1 - maxY}
+                int extent = Math.max(range[0] - range[1], range[2] - range[3]);
+                smallestExtent = Math.min(smallestExtent, extent);
+                if (v == 0) maxSide += extent;
             }
-            if (polygonType == PolygonType.Arbitrary || polygonType == PolygonType.Orthoconvex || polygonType == PolygonType.Rectangle) {
-                for (int r = 1; r <= (polygonType == PolygonType.Rectangle ? 1 : 3); ++r) {
-                    var rSol = sol.copy();
-                    for (int rIt = 0; rIt < r; ++rIt) {
-                        rSol.rotate90();
-                    }
-                    addIfDistinct(variants, rSol);
-                    if (polygonType != PolygonType.Rectangle) {
-                        addIfDistinct(variants, rSol.mirrored(false, true));
-                        addIfDistinct(variants, rSol.mirrored(true, false));
-                        addIfDistinct(variants, rSol.mirrored(true, true));
-                    }
-                }
+            area += variantCells[s][0].length / 2;
+            minSide = Math.max(minSide, smallestExtent);
+
+            if (warmStart != null && warmStart[s] != null) {
+                int[] range = positionRange(variantCells[s][warmStart[s][0]], 0);
+                minSide = Math.max(minSide, Math.max(warmStart[s][1] - range[1], warmStart[s][2] - range[3]));
             }
-            componentVariants.add(variants);
         }
+        int side = Math.max(minSide, (int) Math.ceil(CANVAS_SLACK * Math.sqrt(area)));
+        maxSide = Math.max(maxSide, side);
 
+        long deadline = System.nanoTime() + (long) (timeLimit * 1_000_000_000L);
+
+        GRBEnv env = null;
+        GRBModel model = null;
+        ThreadBudget.Lease threadLease = ThreadBudget.shared().open();
         try {
-            GRBEnv env = new GRBEnv();
-            GRBModel model = new GRBModel(env);
+            env = EnvPool.shared().acquire();
+            model = new GRBModel(env);
+            ArrangementModel arrangement = new ArrangementModel(model, variantCells, side, aggregated);
 
-            // Variables: component placement
-            Map<String, GRBVar> placementVars = new HashMap<>();
-            for (int s = 0; s < nSolutions; s++) {
-                ArrayList<Solution> variants = componentVariants.get(s);
-                for (int v = 0; v < variants.size(); v++) {
-                    Solution solVar = variants.get(v);
-                    for (int x = 0; x < GRID_WIDTH; x++) {
-                        for (int y = 0; y < GRID_HEIGHT; y++) {
-                            if (fits(solVar, x, y)) {
-                                String varName = "place_" + s + "_" + v + "_" + x + "_" + y;
-                                GRBVar var = model.addVar(0, 1, 0, GRB.BINARY, varName);
-                                placementVars.put(varName, var);
-                            }
-                        }
-                    }
-                }
+            // Start from the given placements, Gurobi tries to complete the start for the other components
+            if (warmStart != null) {
+                arrangement.setStart(warmStart);
             }
 
-            // Each component must be placed exactly once (sum over its variants & positions = 1)
-            for (int s = 0; s < nSolutions; s++) {
-                GRBLinExpr expr = new GRBLinExpr();
-                ArrayList<Solution> variants = componentVariants.get(s);
-                for (int v = 0; v < variants.size(); v++) {
-                    for (int x = 0; x < GRID_WIDTH; x++) {
-                        for (int y = 0; y < GRID_HEIGHT; y++) {
-                            String key = "place_" + s + "_" + v + "_" + x + "_" + y;
-                            if (placementVars.containsKey(key)) {
-                                expr.addTerm(1.0, placementVars.get(key));
-                            }
-                        }
+            while (true) {
+                double remaining = (deadline - System.nanoTime()) / 1_000_000_000.0;
+                model.set(GRB.DoubleParam.TimeLimit, Math.max(remaining, 0));
+                threadLease.assign(model);
+                model.optimize();
+
+                int status = model.get(GRB.IntAttr.Status);
+                System.out.println("Gurobi status: " + status + " (canvas " + side + " x " + side + ")");
+                if (model.get(GRB.IntAttr.SolCount) > 0) {
+                    if (stats != null) {
+                        stats.recordArrangementModel(model.get(GRB.IntAttr.NumVars), model.get(GRB.IntAttr.NumConstrs),
+                                model.get(GRB.IntAttr.NumNZs), status == GRB.Status.OPTIMAL);
                     }
+                    break;
+                }
+                // Out of time: no larger canvas is tried, the packing heuristic gives the arrangement instead
+                if (System.nanoTime() >= deadline) {
+                    System.out.println("Time limit reached on canvas " + side + " x " + side
+                            + ", using the packing heuristic");
+                    return packing != null ? packing : PackingArranger.arrangement(variantCells);
+                }
+                if (side >= maxSide) {
+                    System.err.println("Model did not return a usable solution (status=" + status + "). Aborting extraction.");
+                    return null;
+                }
+
+                // The components do not fit (or no placement was found in time), try again on a larger canvas
+                side = Math.min(maxSide, side + Math.max(1, side / CANVAS_GROWTH));
+                arrangement.grow(side);
+                // The positions that order the start depend on the canvas size
+                if (warmStart != null) {
+                    arrangement.setStart(warmStart);
                 }
-                model.addConstr(expr, GRB.EQUAL, 1.0, "one_placement_component_" + s);
             }
 
-            // For each grid cell (gx, gy), gather all placements (any variant) that cover it
-            Map<String, List<GRBVar>> cellCoveringPlacements = new HashMap<>();
+            int[][] placements = new int[nSolutions][];
+            double[] bestVal = new double[nSolutions];
+            int[] best = new int[nSolutions];
+            Arrays.fill(bestVal, -1.0);
+            Arrays.fill(best, -1);
+            double[] values = model.get(GRB.DoubleAttr.X, Arrays.copyOf(arrangement.placementVars, arrangement.nPlacements));
+            for (int p = 0; p < arrangement.nPlacements; p++) {
+                int s = arrangement.placementComponent[p];
+                if (values[p] > bestVal[s]) {
+                    bestVal[s] = values[p];
+                    best[s] = p;
+                }
+            }
 
             for (int s = 0; s < nSolutions; s++) {
-                ArrayList<Solution> variants = componentVariants.get(s);
-                for (int v = 0; v < variants.size(); v++) {
-                    Solution solVar = variants.get(v);
-                    for (int ox = 0; ox < GRID_WIDTH; ox++) {
-                        for (int oy = 0; oy < GRID_HEIGHT; oy++) {
-                            String key = "place_" + s + "_" + v + "_" + ox + "_" + oy;
-                            if (!placementVars.containsKey(key))
-                                continue;
-
-                            GRBVar placeVar = placementVars.get(key);
-                            for (Point p : solVar.getCells()) {
-                                int gx = ox + p.x;
-                                int gy = oy + p.y;
-                                if (gx >= 0 && gx < GRID_WIDTH && gy >= 0 && gy < GRID_HEIGHT) {
-                                    String cellKey = gx + "," + gy;
-                                    cellCoveringPlacements.computeIfAbsent(cellKey, k -> new ArrayList<>()).add(placeVar);
-                                }
-                            }
-                        }
-                    }
+                if (best[s] == -1 || bestVal[s] <= 0.5) {
+                    System.err.println("No integer placement found for component " + s + " (bestVal=" + bestVal[s] + "). Aborting.");
+                    // Option: continue and leave it unplaced, but safer to abort.
+                    return null;
                 }
+
+                int p = best[s];
+                placements[s] = new int[]{arrangement.placementVariant[p], arrangement.placementX[p], arrangement.placementY[p]};
             }
 
-            // No overlapping i.e. sum of placements covering a cell is at most 1
-            for (Map.Entry<String, List<GRBVar>> entry : cellCoveringPlacements.entrySet()) {
-                String[] parts = entry.getKey().split(",");
-                int x = Integer.parseInt(parts[0]);
-                int y = Integer.parseInt(parts[1]);
+            double width = arrangement.W.get(GRB.DoubleAttr.X);
+            double height = arrangement.H.get(GRB.DoubleAttr.X);
+            System.out.println("Bounding Box: " + width + " x " + height);
 
-                GRBLinExpr expr = new GRBLinExpr();
-                for (GRBVar var : entry.getValue()) {
-                    expr.addTerm(1.0, var);
-                }
-                model.addConstr(expr, GRB.LESS_EQUAL, 1.0, "no_overlap_" + x + "_" + y);
-            }
-
-            // Bounding box width/height (0-based dimensions)
-            GRBVar W = model.addVar(0, GRID_WIDTH, 0, GRB.INTEGER, "W");
-            GRBVar H = model.addVar(0, GRID_HEIGHT, 0, GRB.INTEGER, "H");
-
-            // Orthoconvex hull - min and max x per row
-            GRBVar[] wMin = new GRBVar[GRID_HEIGHT];
-            GRBVar[] wMax = new GRBVar[GRID_HEIGHT];
-            GRBVar[] hMin = new GRBVar[GRID_WIDTH];
-            GRBVar[] hMax = new GRBVar[GRID_WIDTH];
-            int Mw = GRID_WIDTH - 1;
-            int Mh = GRID_HEIGHT - 1;
-
-            for (int gy = 0; gy < GRID_HEIGHT; gy++) {
-                wMin[gy] = model.addVar(0, GRID_WIDTH - 1, 0, GRB.INTEGER, "wMin_" + gy);
-                wMax[gy] = model.addVar(0, GRID_WIDTH - 1, 0, GRB.INTEGER, "wMax_" + gy);
-                model.addConstr(wMax[gy], GRB.GREATER_EQUAL, wMin[gy], "rowOrder_" + gy);
-            }
-
-            for (int gx = 0; gx < GRID_WIDTH; gx++) {
-                hMin[gx] = model.addVar(0, GRID_HEIGHT - 1, 0, GRB.INTEGER, "hMin_" + gx);
-                hMax[gx] = model.addVar(0, GRID_HEIGHT - 1, 0, GRB.INTEGER, "hMax_" + gx);
-                model.addConstr(hMax[gx], GRB.GREATER_EQUAL, hMin[gx], "columnOrder_" + gx);
-            }
-
-            // For each cell that might be occupied, enforce bounding box constraints
-            for (Map.Entry<String, List<GRBVar>> entry : cellCoveringPlacements.entrySet()) {
-                String[] parts = entry.getKey().split(",");
-                int gx = Integer.parseInt(parts[0]);
-                int gy = Integer.parseInt(parts[1]);
-
-                for (GRBVar var : entry.getValue()) {
-                    GRBLinExpr exprW = new GRBLinExpr();
-                    exprW.addTerm(gx, var);
-                    model.addConstr(W, GRB.GREATER_EQUAL, exprW, "boundW_" + gx + "_" + gy);
-
-                    GRBLinExpr exprH = new GRBLinExpr();
-                    exprH.addTerm(gy, var);
-                    model.addConstr(H, GRB.GREATER_EQUAL, exprH, "boundH_" + gx + "_" + gy);
-
-                    GRBLinExpr wMaxExpr = new GRBLinExpr();
-                    wMaxExpr.addTerm(gx, var);
-                    model.addConstr(wMax[gy], GRB.GREATER_EQUAL, wMaxExpr, "rowMax_" + gx + "_" + gy);
-
-                    GRBLinExpr hMaxExpr = new GRBLinExpr();
-                    hMaxExpr.addTerm(gy, var);
-                    model.addConstr(hMax[gx], GRB.GREATER_EQUAL, hMaxExpr, "columnMax_" + gx + "_" + gy);
-
-                    // wMin[gy] ≤ gx + M * (1 - p)
-                    GRBLinExpr wMinExpr = new GRBLinExpr();
-                    wMinExpr.addTerm(1.0, wMin[gy]);
-                    wMinExpr.addTerm(Mw, var);
-                    wMinExpr.addConstant(-Mw);
-                    model.addConstr(wMinExpr, GRB.LESS_EQUAL, gx, "rowMin_" + gx + "_" + gy);
-
-                    GRBLinExpr hMinExpr = new GRBLinExpr();
-                    hMinExpr.addTerm(1.0, hMin[gx]);
-                    hMinExpr.addTerm(Mh, var);
-                    hMinExpr.addConstant(-Mh);
-                    model.addConstr(hMinExpr, GRB.LESS_EQUAL, gy, "columnMin_" + gx + "_" + gy);
-                }
+            return new Arrangement(placements, (int) width, (int) height);
+        } catch (GRBException e) {
+            System.out.println("Error code: " + e.getErrorCode() + ". " + e.getMessage());
+        } finally {
+            if (model != null) model.dispose();
+            try {
+                EnvPool.shared().release(env);
+            } catch (GRBException e) {
+                System.out.println("Error code: " + e.getErrorCode() + ". " + e.getMessage());
             }
+            threadLease.close();
+        }
+
+        return null;
+    }
+
+    // The distinct rotations and mirror images of every component that fit the polygon type, starting with the
+    // component itself. Variants with the same shape as an earlier one, up to translation, are left out.
+    static List<List<ShapeVariant>> componentVariants(List<Solution> components, PolygonType polygonType) {
+        List<List<ShapeVariant>> componentVariants = new ArrayList<>();
 
-            // Objective: Minimize W + H + orthoconvex hull area + aspect diff
-            GRBLinExpr totalSize = new GRBLinExpr();
-            totalSize.addTerm(GRID_HEIGHT, W);
-            totalSize.addTerm(GRID_WIDTH, H);
+        for (Solution sol : components) {
+            int[] cells = cellOffsets(sol);
+            Set<ShapeVariant> variants = new LinkedHashSet<>();
+            variants.add(new ShapeVariant(sol, cells, 0, false, false));
 
-            GRBLinExpr orthoconvexHullArea = new GRBLinExpr();
-            for (int gy = 0; gy < GRID_HEIGHT; gy++) {
-                orthoconvexHullArea.addTerm(1.0, wMax[gy]);
-                orthoconvexHullArea.addTerm(-1.0, wMin[gy]);
+            if (polygonType == PolygonType.Arbitrary || polygonType == PolygonType.Orthoconvex) {
+                variants.add(new ShapeVariant(sol, cells, 0, false, true));
+                variants.add(new ShapeVariant(sol, cells, 0, true, true));
+            }
+            if (polygonType == PolygonType.Arbitrary || polygonType == PolygonType.Orthoconvex || polygonType == PolygonType.Nabla) {
+                variants.add(new ShapeVariant(sol, cells, 0, true, false));
             }
-            for (int gx = 0; gx < GRID_WIDTH; gx++) {
-                orthoconvexHullArea.addTerm(1.0, hMax[gx]);
-                orthoconvexHullArea.addTerm(-1.0, hMin[gx]);
+            if (polygonType == PolygonType.Arbitrary || polygonType == PolygonType.Orthoconvex || polygonType == PolygonType.Rectangle) {
+                for (int r = 1; r <= (polygonType == PolygonType.Rectangle ? 1 : 3); ++r) {
+                    variants.add(new ShapeVariant(sol, cells, r, false, false));
+                    if (polygonType != PolygonType.Rectangle) {
+                        variants.add(new ShapeVariant(sol, cells, r, false, true));
+                        variants.add(new ShapeVariant(sol, cells, r, true, false));
+                        variants.add(new ShapeVariant(sol, cells, r, true, true));
+                    }
+                }
             }
+            componentVariants.add(new ArrayList<>(variants));
+        }
+        return componentVariants;
+    }
+
+    // Replaces every component by a copy of its chosen variant {variant, x, y}, moved to its position
+    static PositionedSolution place(ArrayList<Solution> components, List<List<ShapeVariant>> componentVariants,
+                                    int[][] placements, int width, int height) {
+        int[][] solutionCoordinates = new int[components.size()][2];
+        for (int s = 0; s < components.size(); s++) {
+            components.set(s, componentVariants.get(s).get(placements[s][0]).materialise());
+            solutionCoordinates[s][0] = placements[s][1];
+            solutionCoordinates[s][1] = placements[s][2];
+        }
+
+        // Apply offsets to set component coordinates in the global placement
+        offsetCoords(components, solutionCoordinates);
+
+        return new PositionedSolution(components, width, height, placements);
+    }
+
+    // The arrangement model on a side x side canvas. Growing the canvas adds the placements, cells, rows and columns
+    // that become available and updates the bounds and coefficients that depend on the canvas size; everything else
+    // stays in the model.
+    //
+    // The bounding box and hull can be tied to the placements in two ways. By default every placement that covers a
+    // cell bounds W, H and the extents of the row and column of the cell, six constraints for every (cell, placement)
+    // pair. In the aggregated formulation every cell gets an occupancy variable that equals the sum of the placements
+    // covering it (at most 1, so it also prevents overlap), every row and column an indicator that it is occupied,
+    // and the bounds act on those: a constant number of constraints per cell, row and column. Components with the
+    // same variants are interchangeable there, so their placements are ordered by position to break the symmetry.
+    private static class ArrangementModel {
+        final GRBModel model;
+        final int[][][] variantCells;
+        final boolean aggregated;
+        int side = 0;
+
+        // Placements: component, variant and position (x, y) of placement p < nPlacements, and its variable
+        int nPlacements = 0;
+        int[] placementComponent = new int[0];
+        int[] placementVariant = new int[0];
+        int[] placementX = new int[0];
+        int[] placementY = new int[0];
+        GRBVar[] placementVars = new GRBVar[0];
+
+        // Each component must be placed exactly once (sum over its variants & positions = 1)
+        final GRBConstr[] onePlacement;
+        // No overlapping i.e. sum of placements covering cell (gx, gy) is at most 1, null while no placement covers it.
+        // In the aggregated formulation the sum equals occupied[gx][gy] instead.
+        GRBConstr[][] noOverlap = new GRBConstr[0][0];
+        GRBVar[][] occupied = new GRBVar[0][0];
+        // Aggregated formulation: whether row gy / column gx contains an occupied cell
+        final ArrayList<GRBVar> rowUsed = new ArrayList<>();
+        final ArrayList<GRBVar> columnUsed = new ArrayList<>();
+        // Aggregated formulation: the next component with the same variants, or -1, and the constraint that orders
+        // the position of s before that of next[s]
+        final int[] next;
+        final GRBConstr[] order;
+
+        // Bounding box width/height (0-based dimensions) and orthoconvex hull - min and max x per row, y per column
+        final GRBVar W;
+        final GRBVar H;
+        final ArrayList<GRBVar> wMin = new ArrayList<>();
+        final ArrayList<GRBVar> wMax = new ArrayList<>();
+        final ArrayList<GRBVar> hMin = new ArrayList<>();
+        final ArrayList<GRBVar> hMax = new ArrayList<>();
+        // The constraints wMin[gy] ≤ gx + M * (1 - p) and hMin[gx] ≤ gy + M * (1 - p) with M = side - 1
+        final ArrayList<GRBConstr> minConstrs = new ArrayList<>();
+        final ArrayList<GRBVar> minVars = new ArrayList<>();
+
+        ArrangementModel(GRBModel model, int[][][] variantCells, int side, boolean aggregated) throws GRBException {
+            this.model = model;
+            this.variantCells = variantCells;
+            this.aggregated = aggregated;
+
+            // Objective: Minimize W + H + orthoconvex hull area + aspect diff. The objective coefficients are given
+            // with the variables, so that variables added later take part in it.
+            model.set(GRB.IntAttr.ModelSense, GRB.MINIMIZE);
+            W = model.addVar(0, side, SIZE_WEIGHT, GRB.INTEGER, "W");
+            H = model.addVar(0, side, SIZE_WEIGHT, GRB.INTEGER, "H");
 
             // Squareness
-            GRBVar A = model.addVar(0.0, GRID_WIDTH, 0.0, GRB.CONTINUOUS, "AspectDiff");
+            GRBVar A = model.addVar(0.0, GRB.INFINITY, 1.0, GRB.CONTINUOUS, "AspectDiff");
             GRBLinExpr expr1 = new GRBLinExpr();
             expr1.addTerm(1.0, A);
             expr1.addTerm(1.0, W);
@@ -223,102 +323,388 @@ public class SolutionPositioner {
             model.addConstr(expr1, GRB.GREATER_EQUAL, 0, "A_ge_HW");
             model.addConstr(expr2, GRB.GREATER_EQUAL, 0, "A_ge_WH");
 
-            GRBLinExpr aspectRatioDiff = new GRBLinExpr();
-            aspectRatioDiff.addTerm(1, A);
+            onePlacement = new GRBConstr[variantCells.length];
+            for (int s = 0; s < variantCells.length; s++) {
+                onePlacement[s] = model.addConstr(new GRBLinExpr(), GRB.EQUAL, 1.0, "one_placement_component_" + s);
+            }
 
-            GRBLinExpr obj = new GRBLinExpr();
-            obj.add(totalSize);
-            obj.add(aspectRatioDiff);
-            obj.add(orthoconvexHullArea);
+            next = new int[variantCells.length];
+            order = new GRBConstr[variantCells.length];
+            Arrays.fill(next, -1);
+            if (aggregated) {
+                int[] groups = shapeGroups(variantCells);
+                int[] last = new int[variantCells.length];
+                Arrays.fill(last, -1);
+                for (int s = 0; s < variantCells.length; s++) {
+                    int previous = last[groups[s]];
+                    if (previous != -1) {
+                        next[previous] = s;
+                        order[previous] = model.addConstr(new GRBLinExpr(), GRB.LESS_EQUAL, 0.0, "order_" + previous + "_" + s);
+                    }
+                    last[groups[s]] = s;
+                }
+            }
 
-            model.set(GRB.DoubleParam.TimeLimit, timeLimit);
-            model.setObjective(obj, GRB.MINIMIZE);
-            model.optimize();
+            grow(side);
+        }
 
-            int status = model.get(GRB.IntAttr.Status);
-            System.out.println("Gurobi status: " + status);
-            if (status != GRB.OPTIMAL && status == GRB.INFEASIBLE && status != GRB.SUBOPTIMAL) {
-                System.err.println("Model did not return a usable solution (status=" + status + "). Aborting extraction.");
-                model.dispose();
-                env.dispose();
-                return null;
+        void grow(int newSide) throws GRBException {
+            int oldSide = side;
+            side = newSide;
+
+            // Rows and columns of the larger canvas
+            for (int g = oldSide; g < newSide; g++) {
+                wMin.add(model.addVar(0, newSide - 1, -1.0, GRB.INTEGER, "wMin_" + g));
+                wMax.add(model.addVar(0, newSide - 1, 1.0, GRB.INTEGER, "wMax_" + g));
+                model.addConstr(wMax.get(g), GRB.GREATER_EQUAL, wMin.get(g), "rowOrder_" + g);
+
+                hMin.add(model.addVar(0, newSide - 1, -1.0, GRB.INTEGER, "hMin_" + g));
+                hMax.add(model.addVar(0, newSide - 1, 1.0, GRB.INTEGER, "hMax_" + g));
+                model.addConstr(hMax.get(g), GRB.GREATER_EQUAL, hMin.get(g), "columnOrder_" + g);
+
+                if (aggregated) {
+                    // Integral whenever the placements are, as they are bounded from below by occupied cells
+                    rowUsed.add(model.addVar(0, 1, 0, GRB.CONTINUOUS, "rowUsed_" + g));
+                    columnUsed.add(model.addVar(0, 1, 0, GRB.CONTINUOUS, "columnUsed_" + g));
+                    // H ≥ g * rowUsed[g], W ≥ g * columnUsed[g]
+                    model.addConstr(boundBy(H, -g, rowUsed.get(g)), GRB.GREATER_EQUAL, 0, "boundH_" + g);
+                    model.addConstr(boundBy(W, -g, columnUsed.get(g)), GRB.GREATER_EQUAL, 0, "boundW_" + g);
+                }
+            }
+            for (ArrayList<GRBVar> vars : List.of(wMin, wMax, hMin, hMax)) {
+                for (GRBVar var : vars) {
+                    var.set(GRB.DoubleAttr.UB, newSide - 1);
+                }
+            }
+            for (GRBVar var : new GRBVar[]{W, H}) {
+                var.set(GRB.DoubleAttr.UB, newSide);
             }
 
-            int[] chosenVariant = new int[nSolutions];
-            int[][] chosenPos = new int[nSolutions][2];
-            Arrays.fill(chosenVariant, -1);
-            for (int s = 0; s < nSolutions; s++) {
-                double bestVal = -1.0;
-                String bestKey = null;
-                // scan all placement vars for component s
-                String prefix = "place_" + s + "_";
-                for (Map.Entry<String, GRBVar> e : placementVars.entrySet()) {
-                    String key = e.getKey();
-                    if (!key.startsWith(prefix)) continue;
-                    GRBVar var = e.getValue();
-                    double val = var.get(GRB.DoubleAttr.X);
-                    if (val > bestVal) {
-                        bestVal = val;
-                        bestKey = key;
+            // Big M of the existing constraints
+            if (!minConstrs.isEmpty()) {
+                GRBConstr[] constrs = minConstrs.toArray(new GRBConstr[0]);
+                double[] rhs = model.get(GRB.DoubleAttr.RHS, constrs);
+                double[] coefficients = new double[constrs.length];
+                for (int i = 0; i < constrs.length; i++) {
+                    rhs[i] += newSide - oldSide;
+                    coefficients[i] = newSide - 1;
+                }
+                model.set(GRB.DoubleAttr.RHS, constrs, rhs);
+                model.chgCoeffs(constrs, minVars.toArray(new GRBVar[0]), coefficients);
+            }
+
+            GRBConstr[][] grownNoOverlap = new GRBConstr[newSide][newSide];
+            GRBVar[][] grownOccupied = new GRBVar[newSide][newSide];
+            for (int gx = 0; gx < oldSide; gx++) {
+                System.arraycopy(noOverlap[gx], 0, grownNoOverlap[gx], 0, oldSide);
+                System.arraycopy(occupied[gx], 0, grownOccupied[gx], 0, oldSide);
+            }
+            noOverlap = grownNoOverlap;
+            occupied = grownOccupied;
+
+            // Placements at positions where a variant fits in the new canvas but did not fit in the old one
+            int first = nPlacements;
+            for (int s = 0; s < variantCells.length; s++) {
+                for (int v = 0; v < variantCells[s].length; v++) {
+                    int[] range = positionRange(variantCells[s][v], newSide);
+                    int[] oldRange = positionRange(variantCells[s][v], oldSide);
+                    for (int x = range[0]; x <= range[1]; x++) {
+                        for (int y = range[2]; y <= range[3]; y++) {
+                            if (x <= oldRange[1] && y <= oldRange[3]) continue;
+                            addPlacement(s, v, x, y);
+                        }
                     }
                 }
-                if (bestKey == null || bestVal <= 0.5) {
-                    System.err.println("No integer placement found for component " + s + " (bestVal=" + bestVal + "). Aborting.");
-                    // Option: continue and leave it unplaced, but safer to abort.
-                    model.dispose();
-                    env.dispose();
-                    return null;
+            }
+            int added = nPlacements - first;
+            if (added == 0) {
+                updateOrder();
+                return;
+            }
+
+            // Variables: component placement (unnamed, there are a lot of them)
+            double[] zeros = new double[added];
+            double[] ones = new double[added];
+            Arrays.fill(ones, 1.0);
+            char[] binary = new char[added];
+            Arrays.fill(binary, GRB.BINARY);
+            GRBVar[] vars = model.addVars(zeros, ones, zeros, binary, null);
+            System.arraycopy(vars, 0, placementVars, first, added);
+
+            GRBConstr[] components = new GRBConstr[added];
+            for (int i = 0; i < added; i++) {
+                components[i] = onePlacement[placementComponent[first + i]];
+            }
+            model.chgCoeffs(components, vars, ones);
+
+            // For each grid cell (gx, gy) = cell index gy * side + gx, gather the new placements (any variant) that
+            // cover it: coveringPlacements[coveringStart[c]] .. coveringPlacements[coveringStart[c + 1] - 1]
+            int nCells = newSide * newSide;
+            int[] coveringStart = new int[nCells + 1];
+            for (int p = first; p < nPlacements; p++) {
+                int[] cells = variantCells[placementComponent[p]][placementVariant[p]];
+                for (int i = 0; i < cells.length; i += 2) {
+                    coveringStart[(placementY[p] + cells[i + 1]) * newSide + placementX[p] + cells[i] + 1]++;
+                }
+            }
+            for (int c = 0; c < nCells; c++) {
+                coveringStart[c + 1] += coveringStart[c];
+            }
+            int[] coveringPlacements = new int[coveringStart[nCells]];
+            int[] fill = Arrays.copyOf(coveringStart, nCells);
+            for (int p = first; p < nPlacements; p++) {
+                int[] cells = variantCells[placementComponent[p]][placementVariant[p]];
+                for (int i = 0; i < cells.length; i += 2) {
+                    coveringPlacements[fill[(placementY[p] + cells[i + 1]) * newSide + placementX[p] + cells[i]]++] = p;
+                }
+            }
+
+            int Mw = newSide - 1;
+            int Mh = newSide - 1;
+            for (int c = 0; c < nCells; c++) {
+                int count = coveringStart[c + 1] - coveringStart[c];
+                if (count == 0)
+                    continue;
+                int gx = c % newSide;
+                int gy = c / newSide;
+
+                GRBVar[] covering = new GRBVar[count];
+                for (int i = 0; i < count; i++) {
+                    covering[i] = placementVars[coveringPlacements[coveringStart[c] + i]];
                 }
-                // parse the chosen key "place_s_v_x_y"
-                String[] parts = bestKey.split("_");
-                int v = Integer.parseInt(parts[2]);
-                int x = Integer.parseInt(parts[3]);
-                int y = Integer.parseInt(parts[4]);
+                if (noOverlap[gx][gy] == null) {
+                    GRBLinExpr expr = new GRBLinExpr();
+                    expr.addTerms(ones, covering, 0, count);
+                    if (aggregated) {
+                        addOccupied(expr, gx, gy);
+                    } else {
+                        noOverlap[gx][gy] = model.addConstr(expr, GRB.LESS_EQUAL, 1.0, "no_overlap_" + gx + "_" + gy);
+                    }
+                } else {
+                    GRBConstr[] constrs = new GRBConstr[count];
+                    Arrays.fill(constrs, noOverlap[gx][gy]);
+                    model.chgCoeffs(constrs, covering, Arrays.copyOf(ones, count));
+                }
+                if (aggregated) continue;
+
+                // For each cell that might be occupied, enforce bounding box constraints
+                GRBLinExpr[] lhs = new GRBLinExpr[6 * count];
+                char[] senses = new char[6 * count];
+                double[] rhs = new double[6 * count];
+                for (int i = 0; i < count; i++) {
+                    GRBVar var = covering[i];
+                    int k = 6 * i;
+
+                    // W ≥ gx * p, H ≥ gy * p
+                    lhs[k] = boundBy(W, -gx, var);
+                    lhs[k + 1] = boundBy(H, -gy, var);
+                    // wMax[gy] ≥ gx * p, hMax[gx] ≥ gy * p
+                    lhs[k + 2] = boundBy(wMax.get(gy), -gx, var);
+                    lhs[k + 3] = boundBy(hMax.get(gx), -gy, var);
+                    for (int j = 0; j < 4; j++) {
+                        senses[k + j] = GRB.GREATER_EQUAL;
+                    }
 
-                chosenVariant[s] = v;
-                chosenPos[s][0] = x;
-                chosenPos[s][1] = y;
+                    // wMin[gy] ≤ gx + M * (1 - p), hMin[gx] ≤ gy + M * (1 - p)
+                    lhs[k + 4] = boundBy(wMin.get(gy), Mw, var);
+                    senses[k + 4] = GRB.LESS_EQUAL;
+                    rhs[k + 4] = gx + Mw;
+                    lhs[k + 5] = boundBy(hMin.get(gx), Mh, var);
+                    senses[k + 5] = GRB.LESS_EQUAL;
+                    rhs[k + 5] = gy + Mh;
+                }
+                GRBConstr[] constrs = model.addConstrs(lhs, senses, rhs, null);
+                for (int i = 0; i < count; i++) {
+                    minConstrs.add(constrs[6 * i + 4]);
+                    minVars.add(covering[i]);
+                    minConstrs.add(constrs[6 * i + 5]);
+                    minVars.add(covering[i]);
+                }
             }
 
-            for (int s = 0; s < nSolutions; s++) {
-                int v = chosenVariant[s];
-                Solution chosen = componentVariants.get(s).get(v);
-                components.set(s, chosen.copy());
-                solutionCoordinates[s][0] = chosenPos[s][0];
-                solutionCoordinates[s][1] = chosenPos[s][1];
+            updateOrder();
+        }
+
+        // Occupancy of cell (gx, gy), which equals the sum of the placements covering it, and the bounds it implies
+        private void addOccupied(GRBLinExpr covering, int gx, int gy) throws GRBException {
+            GRBVar occ = model.addVar(0, 1, 0, GRB.CONTINUOUS, null);
+            occupied[gx][gy] = occ;
+            covering.addTerm(-1.0, occ);
+            noOverlap[gx][gy] = model.addConstr(covering, GRB.EQUAL, 0.0, "occupied_" + gx + "_" + gy);
+
+            int M = side - 1;
+            GRBLinExpr[] lhs = new GRBLinExpr[6];
+            char[] senses = new char[6];
+            double[] rhs = new double[6];
+            // rowUsed[gy] ≥ occ, columnUsed[gx] ≥ occ, wMax[gy] ≥ gx * occ, hMax[gx] ≥ gy * occ
+            lhs[0] = boundBy(rowUsed.get(gy), -1, occ);
+            lhs[1] = boundBy(columnUsed.get(gx), -1, occ);
+            lhs[2] = boundBy(wMax.get(gy), -gx, occ);
+            lhs[3] = boundBy(hMax.get(gx), -gy, occ);
+            for (int j = 0; j < 4; j++) {
+                senses[j] = GRB.GREATER_EQUAL;
             }
+            // wMin[gy] ≤ gx + M * (1 - occ), hMin[gx] ≤ gy + M * (1 - occ)
+            lhs[4] = boundBy(wMin.get(gy), M, occ);
+            senses[4] = GRB.LESS_EQUAL;
+            rhs[4] = gx + M;
+            lhs[5] = boundBy(hMin.get(gx), M, occ);
+            senses[5] = GRB.LESS_EQUAL;
+            rhs[5] = gy + M;
+            GRBConstr[] constrs = model.addConstrs(lhs, senses, rhs, null);
+            minConstrs.add(constrs[4]);
+            minVars.add(occ);
+            minConstrs.add(constrs[5]);
+            minVars.add(occ);
+        }
 
-            // Apply offsets to set component coordinates in the global placement
-            offsetCoords(components, solutionCoordinates);
+        // Sets the coefficients of the order constraints to the positions y * side + x on the current canvas: the
+        // position of every component is at most that of the next component with the same variants
+        private void updateOrder() throws GRBException {
+            int[] previous = new int[next.length];
+            Arrays.fill(previous, -1);
+            for (int s = 0; s < next.length; s++) {
+                if (next[s] != -1) previous[next[s]] = s;
+            }
 
-            System.out.println("Bounding Box: " + W.get(GRB.DoubleAttr.X) + " x " + H.get(GRB.DoubleAttr.X));
+            int n = 0;
+            GRBConstr[] constrs = new GRBConstr[2 * nPlacements];
+            GRBVar[] vars = new GRBVar[2 * nPlacements];
+            double[] coefficients = new double[2 * nPlacements];
+            for (int p = 0; p < nPlacements; p++) {
+                int s = placementComponent[p];
+                double position = placementY[p] * side + placementX[p];
+                if (order[s] != null) {
+                    constrs[n] = order[s];
+                    vars[n] = placementVars[p];
+                    coefficients[n++] = position;
+                }
+                if (previous[s] != -1) {
+                    constrs[n] = order[previous[s]];
+                    vars[n] = placementVars[p];
+                    coefficients[n++] = -position;
+                }
+            }
+            if (n > 0) {
+                model.chgCoeffs(Arrays.copyOf(constrs, n), Arrays.copyOf(vars, n), Arrays.copyOf(coefficients, n));
+            }
+        }
 
-            return new PositionedSolution(components, (int) W.get(GRB.DoubleAttr.X), (int) H.get(GRB.DoubleAttr.X));
-        } catch (GRBException e) {
-            System.out.println("Error code: " + e.getErrorCode() + ". " + e.getMessage());
+        // Start from the given placements {variant, x, y} of the components that have one
+        void setStart(int[][] start) throws GRBException {
+            start = orderedStart(start);
+            GRBVar[] vars = new GRBVar[nPlacements];
+            double[] values = new double[nPlacements];
+            int n = 0;
+            for (int p = 0; p < nPlacements; p++) {
+                int[] placement = start[placementComponent[p]];
+                if (placement == null) continue;
+                vars[n] = placementVars[p];
+                values[n] = placementVariant[p] == placement[0] && placementX[p] == placement[1]
+                        && placementY[p] == placement[2] ? 1.0 : 0.0;
+                n++;
+            }
+            model.set(GRB.DoubleAttr.Start, Arrays.copyOf(vars, n), Arrays.copyOf(values, n));
         }
 
-        return null;
+        // The start with the placements of components with the same variants ordered by position, so that it
+        // satisfies the order constraints. Groups in which a component has no placement are left as they are.
+        private int[][] orderedStart(int[][] start) {
+            int[][] ordered = start.clone();
+            boolean[] visited = new boolean[next.length];
+            for (int s = 0; s < next.length; s++) {
+                if (visited[s]) continue;
+                List<Integer> group = new ArrayList<>();
+                for (int t = s; t != -1; t = next[t]) {
+                    group.add(t);
+                    visited[t] = true;
+                }
+                if (group.size() < 2 || group.stream().anyMatch(t -> start[t] == null)) continue;
+                List<int[]> placements = new ArrayList<>();
+                for (int t : group) {
+                    placements.add(start[t]);
+                }
+                placements.sort(Comparator.comparingInt(placement -> placement[2] * side + placement[1]));
+                for (int i = 0; i < group.size(); i++) {
+                    ordered[group.get(i)] = placements.get(i);
+                }
+            }
+            return ordered;
+        }
+
+        private void addPlacement(int s, int v, int x, int y) {
+            if (nPlacements == placementVars.length) {
+                int capacity = Math.max(1024, 2 * nPlacements);
+                placementComponent = Arrays.copyOf(placementComponent, capacity);
+                placementVariant = Arrays.copyOf(placementVariant, capacity);
+                placementX = Arrays.copyOf(placementX, capacity);
+                placementY = Arrays.copyOf(placementY, capacity);
+                placementVars = Arrays.copyOf(placementVars, capacity);
+            }
+            placementComponent[nPlacements] = s;
+            placementVariant[nPlacements] = v;
+            placementX[nPlacements] = x;
+            placementY[nPlacements] = y;
+            nPlacements++;
+        }
     }
 
-    private static void addIfDistinct(ArrayList<Solution> sols, Solution sol) {
-        for (Solution s : sols) {
-            if (sol.occupySameCells(s)) {
-                return;
+    // Group index of every component, components get the same group iff their variants have the same cells
+    private static int[] shapeGroups(int[][][] variantCells) {
+        Map<List<List<Integer>>, Integer> groupOf = new HashMap<>();
+        int[] groups = new int[variantCells.length];
+        for (int s = 0; s < variantCells.length; s++) {
+            List<List<Integer>> key = new ArrayList<>();
+            for (int[] cells : variantCells[s]) {
+                List<Integer> sorted = new ArrayList<>();
+                long[] packed = new long[cells.length / 2];
+                for (int i = 0; i < cells.length; i += 2) {
+                    packed[i / 2] = ((long) cells[i + 1] << 32) | (cells[i] & 0xFFFFFFFFL);
+                }
+                Arrays.sort(packed);
+                for (long cell : packed) {
+                    sorted.add((int) cell);
+                    sorted.add((int) (cell >> 32));
+                }
+                key.add(sorted);
             }
+            groups[s] = groupOf.computeIfAbsent(key, k -> groupOf.size());
+        }
+        return groups;
+    }
+
+    // Cells of a solution as {x0, y0, x1, y1, ...}
+    static int[] cellOffsets(Solution sol) {
+        List<Point> cells = sol.getCells();
+        int[] offsets = new int[2 * cells.size()];
+        for (int i = 0; i < cells.size(); i++) {
+            offsets[2 * i] = cells.get(i).x;
+            offsets[2 * i + 1] = cells.get(i).y;
         }
-        sols.add(sol);
+        return offsets;
     }
 
-    // Check if a component can be placed in this grid position
-    private static boolean fits(Solution sol, int offsetX, int offsetY) {
-        for (Point p : sol.getCells()) {
-            int x = offsetX + p.x;
-            int y = offsetY + p.y;
-            if (x < 0 || x >= GRID_WIDTH || y < 0 || y >= GRID_HEIGHT)
-                return false;
+    // {minX, maxX, minY, maxY} of the positions at which a component with these cells fits in a side x side canvas
+    private static int[] positionRange(int[] cellOffsets, int side) {
+        if (cellOffsets.length == 0) {
+            return new int[]{0, side - 1, 0, side - 1};
+        }
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < cellOffsets.length; i += 2) {
+            minX = Math.min(minX, cellOffsets[i]);
+            maxX = Math.max(maxX, cellOffsets[i]);
+            minY = Math.min(minY, cellOffsets[i + 1]);
+            maxY = Math.max(maxY, cellOffsets[i + 1]);
         }
-        return true;
+        return new int[]{-minX, side - 1 - maxX, -minY, side - 1 - maxY};
+    }
+
+    // lhs = bounded + coefficient * var
+    private static GRBLinExpr boundBy(GRBVar bounded, double coefficient, GRBVar var) {
+        GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(1.0, bounded);
+        expr.addTerm(coefficient, var);
+        return expr;
     }
 
     // Shift coordinates of all component cells based on that component's position
@@ -14,4 +14,12 @@ public interface Solver {
      * @return Solution if optimal, else null (caller decides to split).
      */
     public Solution solve(StatementEntityInstance inst, double timeLimit, int dimensions) throws Exception, GRBException;
+
+    /**
+     * Describes everything besides the instance, time limit and dimensions that the layout depends on, such as the
+     * constraints and objective. Solvers that describe themselves the same must produce interchangeable layouts.
+     */
+    public default String describe() {
+        return getClass().getName();
+    }
 }
@@ -1,6 +1,9 @@
 package ilp.solvers.mosaicsets;
 
 import com.gurobi.gurobi.*;
+import ilp.EnvPool;
+import ilp.FirstIncumbentCallback;
+import ilp.ThreadBudget;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.DirectedWeightedMultigraph;
 import org.jgrapht.graph.Multigraph;
@@ -38,6 +41,13 @@ public class SetEmbedder<T extends Comparable<T>> {
   // Number of instances
   public int nInst = 0;
 
+  // Positions of the set elements that the first optimization starts from, or
+  // null to start from a cold model
+  public Map<T, Point2D.Double> startPositions = null;
+  // Seconds until the first incumbent of the last optimization, or -1 if none
+  // was found
+  public double firstIncumbent = -1;
+
   /**
    * Constructor to set the arguments of the algorithm
    * 
@@ -338,18 +348,21 @@ public class SetEmbedder<T extends Comparable<T>> {
     /*
      * set up model
      */
+    GRBEnv env = null;
+    GRBModel model = null;
+    ThreadBudget.Lease threadLease = ThreadBudget.shared().open();
     try {
       // Maps the variables of each set to the edge
       Map<DefaultEdge, List<GRBVar>> edgesToVars = new HashMap<>();
       // Maps the flow variables of each set to the edge
       Map<DefaultEdge, List<GRBVar>> edgesToFVars = new HashMap<>();
 
-      GRBEnv env = new GRBEnv();
+      // The environment is shared with other models, so parameters are set on the model only
+      env = EnvPool.shared().acquire();
+      model = new GRBModel(env);
       // Maximum time limit of one hour when minimizing boundary length
-      env.set(GRB.DoubleParam.TimeLimit, timeLimit);
-      env.set(GRB.DoubleParam.MIPGap, mipGap);
-
-      GRBModel model = new GRBModel(env);
+      model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+      model.set(GRB.DoubleParam.MIPGap, mipGap);
 
       // variables indicating selection of edges
       for (DefaultEdge e : algoGraph.edgeSet()) {
@@ -582,8 +595,31 @@ public class SetEmbedder<T extends Comparable<T>> {
           }
         }
       }
+      // Start from the given positions, Gurobi completes the flows
+      if (!subsequentRun && startPositions != null) {
+        for (T element : elementsWithWeights.keySet()) {
+          List<T> originals = elementsToOriginal.get(element);
+          if (originals == null)
+            continue;
+          Set<Integer> startNodes = new HashSet<>();
+          for (T original : originals) {
+            Point2D.Double p = startPositions.get(original);
+            if (p != null)
+              startNodes.add(pointsToIDs.get(p));
+          }
+          for (DefaultEdge e : algoGraph.outgoingEdgesOf(elementsToIDs.get(element))) {
+            getFirstNonNull(edgesToVars.get(e)).set(GRB.DoubleAttr.Start,
+                startNodes.contains(algoGraph.getEdgeTarget(e)) ? 1.0 : 0.0);
+          }
+        }
+      }
+      FirstIncumbentCallback firstIncumbentCallback = new FirstIncumbentCallback();
+      model.setCallback(firstIncumbentCallback);
+
       // optimize
+      threadLease.assign(model);
       model.optimize();
+      firstIncumbent = firstIncumbentCallback.firstIncumbent();
 
       int status = model.get(GRB.IntAttr.Status);
       int solCount = model.get(GRB.IntAttr.SolCount);
@@ -654,6 +690,14 @@ public class SetEmbedder<T extends Comparable<T>> {
 
     } catch (GRBException e1) {
       e1.printStackTrace();
+    } finally {
+      if (model != null) model.dispose();
+      try {
+        EnvPool.shared().release(env);
+      } catch (GRBException e1) {
+        e1.printStackTrace();
+      }
+      threadLease.close();
     }
 
     return pointsToElements;
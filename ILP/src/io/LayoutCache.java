@@ -0,0 +1,343 @@
+package io;
+
+import model.ArbitraryPolygonSolution;
+import model.CanonicalInstance;
+import model.PolygonSolution;
+import model.RectangleSolution;
+import model.Solution;
+import model.StatementEntityInstance;
+
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of component layouts, stored as one small binary file per layout in a directory.
+ * <p>
+ * Layouts are addressed by the canonical hash of the instance (see {@link CanonicalInstance}) together with a
+ * description of how it was solved, and stored with entities and statements in canonical order. A layout found
+ * for one instance can therefore be handed out for every renaming of it. Besides layouts, the cache remembers
+ * that a solver gave up on an instance within a time limit, so that the instance is split right away next time.
+ * <p>
+ * When the files together exceed the size limit, the least recently used ones are deleted.
+ */
+public class LayoutCache {
+    private static final int MAGIC = 0x424c4331; // "BLC1"
+
+    private static final byte NO_LAYOUT = 0;
+    private static final byte RECTANGLES = 1;
+    private static final byte POLYGONS = 2;
+    private static final byte ARBITRARY_POLYGONS = 3;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // File name -> size, in order of last use
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    // The result of a lookup: solution is null when the solver found no layout last time
+    public record Hit(Solution solution) {
+    }
+
+    public LayoutCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+
+        File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(".bin"));
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                entries.put(file.getName(), file.length());
+                totalBytes += file.length();
+            }
+        }
+        evict();
+    }
+
+    // The key combines the relabelled incidence with everything else the layout depends on
+    public static String key(CanonicalInstance canonical, String polygonType, int dimensions, String solverDescription) {
+        String input = canonical.hash() + "|" + polygonType + "|" + dimensions + "|" + solverDescription;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Looks up the layout for the given key, remapped to the ids of inst.
+     *
+     * @return null if nothing usable is stored: no entry, an unreadable entry, or the solver gave up with a shorter
+     * time limit than the given one.
+     */
+    public Hit get(String key, StatementEntityInstance inst, CanonicalInstance canonical, double timeLimit) {
+        String name = key + ".bin";
+        byte[] data;
+        synchronized (this) {
+            // get (rather than containsKey) marks the entry as most recently used
+            if (entries.get(name) == null) return null;
+            try {
+                data = Files.readAllBytes(directory.resolve(name));
+                directory.resolve(name).toFile().setLastModified(System.currentTimeMillis());
+            } catch (IOException e) {
+                remove(name);
+                return null;
+            }
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a cached layout");
+            byte kind = in.readByte();
+            if (kind == NO_LAYOUT) {
+                return in.readDouble() >= timeLimit ? new Hit(null) : null;
+            }
+            if (in.readInt() != inst.numberOfEntities || in.readInt() != inst.numberOfStatements) {
+                throw new IOException("Cached layout does not match the instance");
+            }
+            return new Hit(switch (kind) {
+                case RECTANGLES -> readRectangles(in, inst, canonical);
+                case POLYGONS -> readPolygons(in, inst, canonical);
+                case ARBITRARY_POLYGONS -> readArbitraryPolygons(in, inst, canonical);
+                default -> throw new IOException("Unknown layout type " + kind);
+            });
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ignoring unreadable cached layout " + name + ": " + e.getMessage());
+            synchronized (this) {
+                remove(name);
+            }
+            return null;
+        }
+    }
+
+    // Stores the layout the solver found, or the fact that it found none within the time limit (solution is null)
+    public void put(String key, Solution solution, CanonicalInstance canonical, double timeLimit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            if (solution == null) {
+                out.writeByte(NO_LAYOUT);
+                out.writeDouble(timeLimit);
+            } else if (solution instanceof RectangleSolution rs) {
+                out.writeByte(RECTANGLES);
+                writeRectangles(out, rs, canonical);
+            } else if (solution instanceof PolygonSolution ps) {
+                out.writeByte(POLYGONS);
+                writePolygons(out, ps, canonical);
+            } else if (solution instanceof ArbitraryPolygonSolution aps) {
+                out.writeByte(ARBITRARY_POLYGONS);
+                writeArbitraryPolygons(out, aps, canonical);
+            } else {
+                return;
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        String name = key + ".bin";
+        synchronized (this) {
+            try {
+                Path temp = Files.createTempFile(directory, key, ".tmp");
+                try (var out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    bytes.writeTo(out);
+                }
+                Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                System.out.println("Could not cache layout " + name + ": " + e.getMessage());
+                return;
+            }
+            Long previous = entries.put(name, (long) bytes.size());
+            totalBytes += bytes.size() - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    public synchronized long sizeInBytes() {
+        return totalBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            directory.resolve(eldest.getKey()).toFile().delete();
+        }
+    }
+
+    private void remove(String name) {
+        Long size = entries.remove(name);
+        if (size != null) totalBytes -= size;
+        directory.resolve(name).toFile().delete();
+    }
+
+    // The entities of a solution, indexed by canonical position
+    private static int[] entityIndexByPosition(Solution sol, CanonicalInstance canonical) {
+        int[] index = new int[canonical.entityIds.length];
+        List<Integer> ids = sol.getEntityIds();
+        for (int i = 0; i < ids.size(); i++) index[canonical.entityPosition(ids.get(i))] = i;
+        return index;
+    }
+
+    // The statements of a solution (whose coordinates follow the key set order), indexed by canonical position
+    private static int[] statementIndexByPosition(Solution sol, CanonicalInstance canonical) {
+        int[] index = new int[canonical.statementIds.length];
+        int k = 0;
+        for (Integer id : sol.getInstance().statements.keySet()) index[canonical.statementPosition(id)] = k++;
+        return index;
+    }
+
+    private static void writeHeader(DataOutputStream out, Solution sol) throws IOException {
+        out.writeInt(sol.getInstance().numberOfEntities);
+        out.writeInt(sol.getInstance().numberOfStatements);
+        out.writeShort(sol.getW());
+        out.writeShort(sol.getH());
+    }
+
+    private static void writeRectangles(DataOutputStream out, RectangleSolution rs, CanonicalInstance canonical) throws IOException {
+        writeHeader(out, rs);
+        for (int i : entityIndexByPosition(rs, canonical)) {
+            for (int c = 0; c < 4; c++) out.writeShort(rs.entityCoordinates[i][c]);
+        }
+        for (int k : statementIndexByPosition(rs, canonical)) {
+            out.writeShort(rs.statementCoordinates[k][0]);
+            out.writeShort(rs.statementCoordinates[k][1]);
+        }
+    }
+
+    private static RectangleSolution readRectangles(DataInputStream in, StatementEntityInstance inst, CanonicalInstance canonical) throws IOException {
+        int w = in.readShort();
+        int h = in.readShort();
+        int[][] byPosition = new int[inst.numberOfEntities][4];
+        for (int[] coordinates : byPosition) {
+            for (int c = 0; c < 4; c++) coordinates[c] = in.readShort();
+        }
+        int[][] statementsByPosition = readPoints(in, inst.numberOfStatements);
+
+        ArrayList<Integer> entityIds = new ArrayList<>(inst.entities.keySet());
+        int[][] entityCoordinates = new int[entityIds.size()][];
+        for (int i = 0; i < entityIds.size(); i++) {
+            entityCoordinates[i] = byPosition[canonical.entityPosition(entityIds.get(i))];
+        }
+        return new RectangleSolution(inst, w, h, entityIds, entityCoordinates,
+                inKeySetOrder(inst, canonical, statementsByPosition));
+    }
+
+    private static void writePolygons(DataOutputStream out, PolygonSolution ps, CanonicalInstance canonical) throws IOException {
+        writeHeader(out, ps);
+        int rows = ps.entities.length == 0 ? 0 : ps.entities[0].length;
+        out.writeShort(rows);
+        for (int i : entityIndexByPosition(ps, canonical)) {
+            for (int[] row : ps.entities[i]) {
+                out.writeByte(row[0]);
+                out.writeShort(row[1]);
+                out.writeShort(row[2]);
+            }
+        }
+        for (int k : statementIndexByPosition(ps, canonical)) {
+            out.writeShort(ps.statementCoordinates[k][0]);
+            out.writeShort(ps.statementCoordinates[k][1]);
+        }
+    }
+
+    private static PolygonSolution readPolygons(DataInputStream in, StatementEntityInstance inst, CanonicalInstance canonical) throws IOException {
+        int w = in.readShort();
+        int h = in.readShort();
+        int rows = in.readShort();
+        int[][][] byPosition = new int[inst.numberOfEntities][rows][3];
+        for (int[][] entity : byPosition) {
+            for (int[] row : entity) {
+                row[0] = in.readByte();
+                row[1] = in.readShort();
+                row[2] = in.readShort();
+            }
+        }
+        int[][] statementsByPosition = readPoints(in, inst.numberOfStatements);
+
+        ArrayList<Integer> entityIds = new ArrayList<>(inst.entities.keySet());
+        int[][][] entities = new int[entityIds.size()][][];
+        for (int i = 0; i < entityIds.size(); i++) {
+            entities[i] = byPosition[canonical.entityPosition(entityIds.get(i))];
+        }
+        return new PolygonSolution(inst, w, h, entityIds, entities,
+                inKeySetOrder(inst, canonical, statementsByPosition));
+    }
+
+    private static void writeArbitraryPolygons(DataOutputStream out, ArbitraryPolygonSolution aps, CanonicalInstance canonical) throws IOException {
+        writeHeader(out, aps);
+        for (int i : entityIndexByPosition(aps, canonical)) {
+            ArrayList<Point> cells = aps.entityCells.get(i);
+            out.writeInt(cells.size());
+            for (Point cell : cells) {
+                out.writeShort(cell.x);
+                out.writeShort(cell.y);
+            }
+        }
+        for (int k : statementIndexByPosition(aps, canonical)) {
+            out.writeShort(aps.statementCoordinates[k].x);
+            out.writeShort(aps.statementCoordinates[k].y);
+        }
+    }
+
+    private static ArbitraryPolygonSolution readArbitraryPolygons(DataInputStream in, StatementEntityInstance inst, CanonicalInstance canonical) throws IOException {
+        in.readShort(); // w and h follow from the cells
+        in.readShort();
+        List<ArrayList<Point>> byPosition = new ArrayList<>();
+        for (int e = 0; e < inst.numberOfEntities; e++) {
+            int nCells = in.readInt();
+            ArrayList<Point> cells = new ArrayList<>(nCells);
+            for (int c = 0; c < nCells; c++) cells.add(new Point(in.readShort(), in.readShort()));
+            byPosition.add(cells);
+        }
+        int[][] statementsByPosition = readPoints(in, inst.numberOfStatements);
+
+        ArrayList<Integer> entityIds = new ArrayList<>(inst.entities.keySet());
+        ArrayList<ArrayList<Point>> entityCells = new ArrayList<>();
+        for (Integer id : entityIds) entityCells.add(byPosition.get(canonical.entityPosition(id)));
+
+        int[][] statements = inKeySetOrder(inst, canonical, statementsByPosition);
+        Point[] statementCoordinates = new Point[statements.length];
+        for (int k = 0; k < statements.length; k++) statementCoordinates[k] = new Point(statements[k][0], statements[k][1]);
+        return new ArbitraryPolygonSolution(inst, entityIds, entityCells, statementCoordinates);
+    }
+
+    private static int[][] readPoints(DataInputStream in, int n) throws IOException {
+        int[][] points = new int[n][2];
+        for (int[] point : points) {
+            point[0] = in.readShort();
+            point[1] = in.readShort();
+        }
+        return points;
+    }
+
+    // Solutions keep their statement coordinates in the key set order of the instance
+    private static int[][] inKeySetOrder(StatementEntityInstance inst, CanonicalInstance canonical, int[][] byPosition) {
+        int[][] coordinates = new int[inst.numberOfStatements][];
+        int k = 0;
+        for (Integer id : inst.statements.keySet()) coordinates[k++] = byPosition[canonical.statementPosition(id)];
+        return coordinates;
+    }
+}
@@ -2,8 +2,10 @@ package io;
 
 import java.awt.*;
 import java.util.*;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 
@@ -29,6 +31,18 @@ public class StatsRecorder {
     public double totalLayoutTime = 0; // in seconds
     public double totalArrangeTime = 0; // in seconds
 
+    public boolean warmStart = false; // whether component models got a heuristic MIP start
+    public int numSolvedModels = 0; // component models handed to Gurobi
+    public int numWarmStartedModels = 0; // of which the heuristic found a start
+    public int numModelsWithoutIncumbent = 0;
+    public double totalTimeToFirstIncumbent = 0; // in seconds, including the time spent on the MIP start
+    public double maxTimeToFirstIncumbent = 0; // in seconds
+
+    public int arrangementVars = 0; // size of the arrangement model when it was solved
+    public int arrangementConstrs = 0;
+    public int arrangementNonZeros = 0;
+    public boolean arrangementOptimal = false; // whether the arrangement was proven optimal within the time limit
+
     public int bboxWidth = 0;
     public int bboxHeight = 0;
     public int totalBBoxSize = 0;
@@ -47,11 +61,12 @@ public class StatsRecorder {
         this.numElements = inst.numberOfStatements;
 
         singletons = new HashSet<>();
-        for (var entry : inst.entityIndToStatements.entrySet()) {
-            if (entry.getValue().length > 1)
+        InstanceIncidence incidence = inst.incidence();
+        for (int e = 0; e < incidence.numberOfEntities(); e++) {
+            if (incidence.entityDegree(e) > 1)
                 numNonSingletonSets++;
             else
-                singletons.add(entry.getKey());
+                singletons.add(incidence.entityId(e));
         }
     }
 
@@ -245,7 +260,6 @@ public class StatsRecorder {
         } else {
             System.out.println("Unknown solution type!");
         }
-        this.numVacantCells += sol.vacantCells().size();
     }
 
     public void updateShapeStatsFinalLayout(PositionedSolution sol) {
@@ -253,13 +267,13 @@ public class StatsRecorder {
         this.bboxHeight = sol.height + 1;
         this.totalBBoxSize = (sol.width + 1) * (sol.height + 1);
 
-        // Collect the number of all cells covered by any component in the layout
-        int usedCells = 0;
-        for (Solution s : sol.solutions) {
-            usedCells += s.usedCells().size();
-        }
+        // Count the cells covered by any component in the layout, and the vacant and blank hull cells among them,
+        // on a single raster of the layout (the last row and column are not swept for the hull, as before)
+        OccupancyGrid grid = OccupancyGrid.of(sol);
+        int usedCells = grid.usedCells();
+        this.numVacantCells = grid.vacantCells();
 
-        this.numBlankOrthoconvexHullCells = sol.blankOrthoconvexHullCells().size();
+        this.numBlankOrthoconvexHullCells = grid.countBlankOrthoconvexHullCells(0, 0, sol.width - 1, sol.height - 1);
 
         // Any cell in the bounding box that is not used by any component counts as blank
         this.numBlankCells = this.totalBBoxSize - usedCells;
@@ -273,6 +287,28 @@ public class StatsRecorder {
         this.sparsity = (double) this.numVacantCells / this.totalBBoxSize;
     }
 
+    // Components may be solved concurrently, so this is called from several threads.
+    // seconds is negative if the model ended without any feasible solution.
+    public synchronized void recordFirstIncumbent(boolean warmStarted, double seconds) {
+        this.numSolvedModels++;
+        if (warmStarted) {
+            this.numWarmStartedModels++;
+        }
+        if (seconds < 0) {
+            this.numModelsWithoutIncumbent++;
+            return;
+        }
+        this.totalTimeToFirstIncumbent += seconds;
+        this.maxTimeToFirstIncumbent = Math.max(this.maxTimeToFirstIncumbent, seconds);
+    }
+
+    public void recordArrangementModel(int vars, int constrs, int nonZeros, boolean optimal) {
+        this.arrangementVars = vars;
+        this.arrangementConstrs = constrs;
+        this.arrangementNonZeros = nonZeros;
+        this.arrangementOptimal = optimal;
+    }
+
     public void updateSplitComponentStats(ArrayList<StatementEntityInstance> instances) {
         ArrayList<StatementEntityInstance> disjointInstances = getDisjointSplitInstances(instances);
 
@@ -357,7 +393,25 @@ public class StatsRecorder {
         System.out.println("-------------------------------------------");
     }
 
+    // Columns of the statistics files
+    private static final String CSV_HEADER =
+            "Dataset,Split,Shape," +
+            "Components,Duplicated sets,Set copies," +
+            "Max set size difference,Max element size difference," +
+            "Vacant cells,Sparsity (%),Total split time (s),Total layout time (s),Total arrange time (s)," +
+            "Bounding box width,Bounding box height," +
+            "Bounding box (cells),Blank cells,Blank orthoconvex hull cells," +
+            "Average set squareness,Average set vertices,Average set straight sides," +
+            "Warm start,Solved models,Warm started models,Models without incumbent," +
+            "Total time to first incumbent (s),Max time to first incumbent (s)," +
+            "Arrangement variables,Arrangement constraints,Arrangement nonzeros,Arrangement optimal";
+
+    // Appends the statistics to file, or, if file already has a header with other columns (from an older version),
+    // to the first of file-2.csv, file-3.csv, ... that is empty or has the same columns, so rows never end up under
+    // the wrong header
     public void appendToCsv(File file) {
+        file = withMatchingHeader(file);
+
         String dataset = this.parameters[0];
         String split = this.parameters[1];
         String setShape = this.parameters[2];
@@ -367,14 +421,7 @@ public class StatsRecorder {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
 
             if (writeHeader) {
-                writer.write(
-                        "Dataset,Split,Shape," +
-                                "Components,Duplicated sets,Set copies," +
-                                "Max set size difference,Max element size difference," +
-                                "Vacant cells,Sparsity (%),Total split time (s),Total layout time (s),Total arrange time (s)," +
-                                "Bounding box width,Bounding box height," +
-                                "Bounding box (cells),Blank cells,Blank orthoconvex hull cells," +
-                                "Average set squareness,Average set vertices,Average set straight sides");
+                writer.write(CSV_HEADER);
                 writer.newLine();
             }
 
@@ -400,7 +447,17 @@ public class StatsRecorder {
                             this.numBlankOrthoconvexHullCells + "," +
                             String.format("%.4f", this.averageSetSquareness) + "," +
                             String.format("%.4f", this.averageNumSetVertices) + "," +
-                            String.format("%.4f", this.averageNumStraightSetSides));
+                            String.format("%.4f", this.averageNumStraightSetSides) + "," +
+                            this.warmStart + "," +
+                            this.numSolvedModels + "," +
+                            this.numWarmStartedModels + "," +
+                            this.numModelsWithoutIncumbent + "," +
+                            String.format("%.4f", this.totalTimeToFirstIncumbent) + "," +
+                            String.format("%.4f", this.maxTimeToFirstIncumbent) + "," +
+                            this.arrangementVars + "," +
+                            this.arrangementConstrs + "," +
+                            this.arrangementNonZeros + "," +
+                            this.arrangementOptimal);
 
             writer.newLine();
 
@@ -409,6 +466,30 @@ public class StatsRecorder {
         }
     }
 
+    private static File withMatchingHeader(File file) {
+        File target = file;
+        for (int n = 2; !headerMatches(target); n++) {
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            String numbered = dot < 0 ? name + "-" + n : name.substring(0, dot) + "-" + n + name.substring(dot);
+            target = new File(file.getAbsoluteFile().getParentFile(), numbered);
+        }
+        if (target != file) {
+            System.out.println("The columns of " + file + " differ from the current statistics, writing to " + target);
+        }
+        return target;
+    }
+
+    // Whether statistics can be appended to the file: it is empty or new, or starts with the current header
+    private static boolean headerMatches(File file) {
+        if (!file.exists() || file.length() == 0) return true;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return CSV_HEADER.equals(reader.readLine());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     private static String escapeCsv(String value) {
         if (value == null) {
             return "";
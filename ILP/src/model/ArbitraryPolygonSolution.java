@@ -16,6 +16,7 @@ public class ArbitraryPolygonSolution implements Solution {
     public ArrayList<ArrayList<Point>> entityCells;
     public Point[] statementCoordinates;
     public ArrayList<Point> cells;
+    private CellIndex cellIndex = null; // built on the first cell query after the cells or statements changed
 
     public ArbitraryPolygonSolution(StatementEntityInstance inst, ArrayList<Integer> eIds, //ArrayList<ArrayList<Point>> entityBoundaries,
                                     ArrayList<ArrayList<Point>> entityCells, Point[] sCoords) {
@@ -49,6 +50,7 @@ public class ArbitraryPolygonSolution implements Solution {
     @Override
     public void setStartX(int x) {
         startX = x;
+        cellIndex = null;
     }
 
     @Override
@@ -59,6 +61,7 @@ public class ArbitraryPolygonSolution implements Solution {
     @Override
     public void setStartY(int y) {
         startY = y;
+        cellIndex = null;
     }
 
     @Override
@@ -88,19 +91,26 @@ public class ArbitraryPolygonSolution implements Solution {
 
     @Override
     public String getStatement(int x, int y) {
-        for (int k = 0; k != this.statementCoordinates.length; ++k) {
-            var coord = this.statementCoordinates[k];
-            if (coord.x == x && coord.y == y) {
-                int j = 0;
-                for (var key : instance.statements.keySet()) {
-                    if (j == k) {
-                        return instance.statements.get(key);
-                    }
-                    ++j;
-                }
+        return cellIndex().statement(x, y);
+    }
+
+    @Override
+    public boolean hasCell(int x, int y) {
+        return cellIndex().hasCell(x, y);
+    }
+
+    private CellIndex cellIndex() {
+        if (cellIndex == null || !cellIndex.indexes(cells)) {
+            int n = statementCoordinates == null ? 0 : statementCoordinates.length;
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int k = 0; k < n; k++) {
+                xs[k] = statementCoordinates[k].x;
+                ys[k] = statementCoordinates[k].y;
             }
+            cellIndex = new CellIndex(cells, xs, ys, instance);
         }
-        return "";
+        return cellIndex;
     }
 
     @Override
@@ -120,6 +130,7 @@ public class ArbitraryPolygonSolution implements Solution {
 
     public void setCells() {
         cells = new ArrayList<>();
+        cellIndex = null;
 
         for (int i = startX; i <= endX(); i++) {
             for (int j = startY; j <= endY(); j++) {
@@ -291,4 +302,10 @@ public class ArbitraryPolygonSolution implements Solution {
         return copy;
     }
 
+    @Override
+    public ArbitraryPolygonSolution copyFor(StatementEntityInstance inst) {
+        ArbitraryPolygonSolution copy = copy();
+        copy.instance = inst;
+        return copy;
+    }
 }
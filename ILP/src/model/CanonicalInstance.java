@@ -0,0 +1,191 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relabelling of the entities and statements of an instance that only depends on the entity-statement incidence,
+ * not on the ids or texts. Two instances that are the same up to renaming get the same hash, and the positions map
+ * the entities and statements of one onto the other.
+ * <p>
+ * The order is computed by colour refinement on the bipartite incidence graph: entities and statements start out
+ * coloured by their degree and are recoloured by the colours of their neighbours until the colouring is stable.
+ * Ties are broken by giving one element of the first tied class a colour of its own and refining again. For
+ * interchangeable elements (e.g. statements that belong to exactly the same entities) any choice gives the same
+ * result. In the rare case that tied elements are not interchangeable, two renamings may hash differently, but
+ * equal hashes always mean equal relabelled instances.
+ */
+public final class CanonicalInstance {
+    // Canonical position -> id
+    public final int[] entityIds;
+    public final int[] statementIds;
+
+    private final Map<Integer, Integer> entityPositions = new HashMap<>();
+    private final Map<Integer, Integer> statementPositions = new HashMap<>();
+    private final String hash;
+
+    private CanonicalInstance(int[] entityIds, int[] statementIds, int[][] entityStatements) {
+        this.entityIds = entityIds;
+        this.statementIds = statementIds;
+        for (int i = 0; i < entityIds.length; i++) entityPositions.put(entityIds[i], i);
+        for (int i = 0; i < statementIds.length; i++) statementPositions.put(statementIds[i], i);
+        this.hash = digest(entityStatements, statementIds.length);
+    }
+
+    public static CanonicalInstance of(StatementEntityInstance inst) {
+        List<Integer> entityList = new ArrayList<>(inst.entities.keySet());
+        List<Integer> statementList = new ArrayList<>(inst.statements.keySet());
+        int nE = entityList.size();
+        int nS = statementList.size();
+        int n = nE + nS;
+
+        // Nodes 0..nE-1 are the entities, nE..n-1 the statements (in key set order)
+        Map<Integer, Integer> statementNode = new HashMap<>();
+        for (int i = 0; i < nS; i++) statementNode.put(statementList.get(i), nE + i);
+
+        List<List<Integer>> adjacency = new ArrayList<>();
+        for (int v = 0; v < n; v++) adjacency.add(new ArrayList<>());
+        for (int e = 0; e < nE; e++) {
+            int[] members = inst.entityIndToStatements.get(entityList.get(e));
+            if (members == null) continue;
+            for (int statement : members) {
+                Integer s = statementNode.get(statement);
+                // Statements outside this instance do not take part in the layout
+                if (s == null) continue;
+                adjacency.get(e).add(s);
+                adjacency.get(s).add(e);
+            }
+        }
+        int[][] adj = new int[n][];
+        for (int v = 0; v < n; v++) adj[v] = adjacency.get(v).stream().mapToInt(Integer::intValue).toArray();
+
+        // Statements start with higher colours than any entity, so entities always come first
+        int[] colors = new int[n];
+        for (int v = 0; v < n; v++) colors[v] = adj[v].length + (v < nE ? 0 : n + 1);
+        colors = refine(adj, rank(colors));
+
+        while (true) {
+            int tied = firstTiedNode(colors);
+            if (tied < 0) break;
+            int[] individualized = new int[n];
+            for (int v = 0; v < n; v++) individualized[v] = 2 * colors[v];
+            individualized[tied]++;
+            colors = refine(adj, individualized);
+        }
+
+        // The colouring is now a bijection onto 0..n-1 with all entities before all statements
+        int[] canonicalEntities = new int[nE];
+        int[] canonicalStatements = new int[nS];
+        for (int v = 0; v < n; v++) {
+            if (v < nE) canonicalEntities[colors[v]] = entityList.get(v);
+            else canonicalStatements[colors[v] - nE] = statementList.get(v - nE);
+        }
+
+        int[][] entityStatements = new int[nE][];
+        for (int e = 0; e < nE; e++) {
+            int[] positions = new int[adj[e].length];
+            for (int k = 0; k < positions.length; k++) positions[k] = colors[adj[e][k]] - nE;
+            Arrays.sort(positions);
+            entityStatements[colors[e]] = positions;
+        }
+
+        return new CanonicalInstance(canonicalEntities, canonicalStatements, entityStatements);
+    }
+
+    public int entityPosition(int entityId) {
+        return entityPositions.get(entityId);
+    }
+
+    public int statementPosition(int statementId) {
+        return statementPositions.get(statementId);
+    }
+
+    // Hex encoded SHA-256 of the relabelled incidence
+    public String hash() {
+        return hash;
+    }
+
+    // Recolours every node by its colour and the sorted colours of its neighbours until no class splits any further
+    private static int[] refine(int[][] adj, int[] colors) {
+        int n = colors.length;
+        int classes = countClasses(colors);
+        while (true) {
+            int[][] signatures = new int[n][];
+            for (int v = 0; v < n; v++) {
+                int[] signature = new int[adj[v].length + 1];
+                signature[0] = colors[v];
+                for (int k = 0; k < adj[v].length; k++) signature[k + 1] = colors[adj[v][k]];
+                Arrays.sort(signature, 1, signature.length);
+                signatures[v] = signature;
+            }
+            int[] refined = rank(signatures);
+            int refinedClasses = countClasses(refined);
+            if (refinedClasses == classes) return refined;
+            colors = refined;
+            classes = refinedClasses;
+        }
+    }
+
+    private static int[] rank(int[] values) {
+        int[][] wrapped = new int[values.length][];
+        for (int v = 0; v < values.length; v++) wrapped[v] = new int[]{values[v]};
+        return rank(wrapped);
+    }
+
+    // Replaces every signature by its rank among the distinct signatures
+    private static int[] rank(int[][] signatures) {
+        Integer[] order = new Integer[signatures.length];
+        for (int v = 0; v < order.length; v++) order[v] = v;
+        Arrays.sort(order, (a, b) -> Arrays.compare(signatures[a], signatures[b]));
+
+        int[] ranks = new int[signatures.length];
+        int rank = -1;
+        for (int k = 0; k < order.length; k++) {
+            if (k == 0 || Arrays.compare(signatures[order[k - 1]], signatures[order[k]]) != 0) rank++;
+            ranks[order[k]] = rank;
+        }
+        return ranks;
+    }
+
+    private static int countClasses(int[] colors) {
+        return (int) Arrays.stream(colors).distinct().count();
+    }
+
+    // The node with the lowest index in the lowest colour class that has more than one node, or -1
+    private static int firstTiedNode(int[] colors) {
+        int[] count = new int[colors.length];
+        for (int c : colors) count[c]++;
+        for (int c = 0; c < count.length; c++) {
+            if (count[c] < 2) continue;
+            for (int v = 0; v < colors.length; v++) {
+                if (colors[v] == c) return v;
+            }
+        }
+        return -1;
+    }
+
+    private static String digest(int[][] entityStatements, int nStatements) {
+        int length = 2;
+        for (int[] statements : entityStatements) length += statements.length + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(4 * length);
+        buffer.putInt(entityStatements.length).putInt(nStatements);
+        for (int[] statements : entityStatements) {
+            buffer.putInt(statements.length);
+            for (int s : statements) buffer.putInt(s);
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(buffer.array());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package model;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+// The cells and statements of a solution as arrays over their bounding box, so that looking up a cell takes
+// constant time instead of a scan over all cells or statements. Solutions build it when it is first needed and drop
+// it whenever their cells or statements change.
+final class CellIndex {
+    private final List<Point> cells;
+    private final int minX;
+    private final int minY;
+    private final int width;
+    private final int height;
+    // A bit per cell of the bounding box, row by row
+    private final long[] covered;
+    // Per cell of the bounding box the index of the first statement in it, or -1
+    private final int[] statement;
+    // Texts of the statements of the instance, in the order of its statement map
+    private final String[] texts;
+
+    // statementXs and statementYs may be null if there are no statements, instance may then be null as well
+    CellIndex(List<Point> cells, int[] statementXs, int[] statementYs, StatementEntityInstance instance) {
+        this.cells = cells;
+        this.texts = instance == null ? new String[0] : instance.statements.values().toArray(new String[0]);
+        int nStatements = statementXs == null ? 0 : statementXs.length;
+
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (Point cell : cells) {
+            minX = Math.min(minX, cell.x);
+            maxX = Math.max(maxX, cell.x);
+            minY = Math.min(minY, cell.y);
+            maxY = Math.max(maxY, cell.y);
+        }
+        for (int k = 0; k < nStatements; k++) {
+            minX = Math.min(minX, statementXs[k]);
+            maxX = Math.max(maxX, statementXs[k]);
+            minY = Math.min(minY, statementYs[k]);
+            maxY = Math.max(maxY, statementYs[k]);
+        }
+        if (minX > maxX) {
+            minX = minY = 0;
+            maxX = maxY = -1;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.width = maxX - minX + 1;
+        this.height = maxY - minY + 1;
+
+        covered = new long[(width * height + 63) / 64];
+        for (Point cell : cells) {
+            int i = index(cell.x, cell.y);
+            covered[i >> 6] |= 1L << (i & 63);
+        }
+        statement = new int[nStatements == 0 ? 0 : width * height];
+        Arrays.fill(statement, -1);
+        for (int k = nStatements - 1; k >= 0; k--) {
+            statement[index(statementXs[k], statementYs[k])] = k;
+        }
+    }
+
+    // Whether the index was built from this list of cells, i.e. whether it is still current for a solution that
+    // replaces its list whenever its cells change
+    boolean indexes(List<Point> cells) {
+        return this.cells == cells;
+    }
+
+    boolean hasCell(int x, int y) {
+        int i = index(x, y);
+        return i >= 0 && (covered[i >> 6] & (1L << (i & 63))) != 0;
+    }
+
+    // Text of the first statement at (x, y), where the k-th statement has the text of the k-th key of the statement
+    // map of the instance. Empty if there is no statement.
+    String statement(int x, int y) {
+        int i = index(x, y);
+        int k = i < 0 || statement.length == 0 ? -1 : statement[i];
+        return k >= 0 && k < texts.length ? texts[k] : "";
+    }
+
+    private int index(int x, int y) {
+        x -= minX;
+        y -= minY;
+        if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+        return y * width + x;
+    }
+}
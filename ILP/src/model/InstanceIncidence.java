@@ -0,0 +1,195 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable entity-statement incidence of an instance over dense indices. Entities and statements are numbered
+ * 0..n-1 in the key set order of the maps of the instance, which is the order ModelContext uses for its variables.
+ * <p>
+ * The incidence is stored in both directions in compressed sparse row form: the statements of entity e are
+ * entityStatements[entityOffsets[e] .. entityOffsets[e + 1]), sorted by index, and likewise for the entities of a
+ * statement. Every entity also has a bitset over the statements, so membership tests and checks whether two entities
+ * share a statement do not need to scan arrays. Statements that an entity lists but that are not in the instance,
+ * and repeated statements, are left out.
+ */
+public final class InstanceIncidence {
+    private final int[] entityIds;
+    private final int[] statementIds;
+    private final Map<Integer, Integer> entityIndex;
+    private final Map<Integer, Integer> statementIndex;
+
+    private final int[] entityOffsets;
+    private final int[] entityStatements;
+    private final int[] statementOffsets;
+    private final int[] statementEntities;
+
+    // Per entity a bitset of its statements, words consecutive words per entity
+    private final int words;
+    private final long[] membership;
+
+    public InstanceIncidence(StatementEntityInstance inst) {
+        int nE = inst.entities.size();
+        int nS = inst.statements.size();
+        entityIds = new int[nE];
+        statementIds = new int[nS];
+        entityIndex = new HashMap<>();
+        statementIndex = new HashMap<>();
+        int e = 0;
+        for (int id : inst.entities.keySet()) {
+            entityIds[e] = id;
+            entityIndex.put(id, e++);
+        }
+        int s = 0;
+        for (int id : inst.statements.keySet()) {
+            statementIds[s] = id;
+            statementIndex.put(id, s++);
+        }
+
+        words = (nS + 63) / 64;
+        membership = new long[nE * words];
+        int[] entityDegree = new int[nE];
+        int[] statementDegree = new int[nS];
+        for (e = 0; e < nE; e++) {
+            int[] members = inst.entityIndToStatements.get(entityIds[e]);
+            if (members == null) continue;
+            for (int id : members) {
+                Integer index = statementIndex.get(id);
+                if (index == null || contains(e, index)) continue;
+                membership[e * words + (index >> 6)] |= 1L << (index & 63);
+                entityDegree[e]++;
+                statementDegree[index]++;
+            }
+        }
+
+        // Both directions are filled from the bitsets, so the rows come out sorted
+        entityOffsets = offsets(entityDegree);
+        statementOffsets = offsets(statementDegree);
+        entityStatements = new int[entityOffsets[nE]];
+        statementEntities = new int[statementOffsets[nS]];
+        int[] statementFill = Arrays.copyOf(statementOffsets, nS);
+        int k = 0;
+        for (e = 0; e < nE; e++) {
+            for (int w = 0; w < words; w++) {
+                long bits = membership[e * words + w];
+                while (bits != 0) {
+                    s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    entityStatements[k++] = s;
+                    statementEntities[statementFill[s]++] = e;
+                }
+            }
+        }
+    }
+
+    private static int[] offsets(int[] degrees) {
+        int[] offsets = new int[degrees.length + 1];
+        for (int i = 0; i < degrees.length; i++) {
+            offsets[i + 1] = offsets[i] + degrees[i];
+        }
+        return offsets;
+    }
+
+    public int numberOfEntities() {
+        return entityIds.length;
+    }
+
+    public int numberOfStatements() {
+        return statementIds.length;
+    }
+
+    public int entityId(int e) {
+        return entityIds[e];
+    }
+
+    public int statementId(int s) {
+        return statementIds[s];
+    }
+
+    // Index of the entity with the given id, or -1 if it is not in the instance
+    public int entityIndex(int id) {
+        Integer index = entityIndex.get(id);
+        return index == null ? -1 : index;
+    }
+
+    // Index of the statement with the given id, or -1 if it is not in the instance
+    public int statementIndex(int id) {
+        Integer index = statementIndex.get(id);
+        return index == null ? -1 : index;
+    }
+
+    public int entityDegree(int e) {
+        return entityOffsets[e + 1] - entityOffsets[e];
+    }
+
+    public int statementDegree(int s) {
+        return statementOffsets[s + 1] - statementOffsets[s];
+    }
+
+    // Indices of the statements of entity e, in increasing order
+    public int[] statementsOf(int e) {
+        return Arrays.copyOfRange(entityStatements, entityOffsets[e], entityOffsets[e + 1]);
+    }
+
+    // Indices of the entities statement s belongs to, in increasing order
+    public int[] entitiesOf(int s) {
+        return Arrays.copyOfRange(statementEntities, statementOffsets[s], statementOffsets[s + 1]);
+    }
+
+    // The statements divided into classes of statements that belong to exactly the same entities, each class in
+    // increasing order and the classes by their first statement. Statements in a class are interchangeable.
+    public int[][] statementClasses() {
+        int nS = statementIds.length;
+        Integer[] order = new Integer[nS];
+        for (int s = 0; s < nS; s++) order[s] = s;
+        Arrays.sort(order, (a, b) -> {
+            int c = Arrays.compare(statementEntities, statementOffsets[a], statementOffsets[a + 1],
+                    statementEntities, statementOffsets[b], statementOffsets[b + 1]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+
+        int[] classOf = new int[nS];
+        int nClasses = 0;
+        for (int i = 0; i < nS; i++) {
+            int s = order[i];
+            if (i > 0 && Arrays.equals(statementEntities, statementOffsets[s], statementOffsets[s + 1],
+                    statementEntities, statementOffsets[order[i - 1]], statementOffsets[order[i - 1] + 1])) {
+                classOf[s] = classOf[order[i - 1]];
+            } else {
+                classOf[s] = nClasses++;
+            }
+        }
+
+        // Renumber the classes by their first statement
+        int[] renumbered = new int[nClasses];
+        Arrays.fill(renumbered, -1);
+        int[] sizes = new int[nClasses];
+        int next = 0;
+        for (int s = 0; s < nS; s++) {
+            if (renumbered[classOf[s]] < 0) renumbered[classOf[s]] = next++;
+            sizes[renumbered[classOf[s]]]++;
+        }
+        int[][] classes = new int[nClasses][];
+        for (int c = 0; c < nClasses; c++) classes[c] = new int[sizes[c]];
+        int[] fill = new int[nClasses];
+        for (int s = 0; s < nS; s++) {
+            int c = renumbered[classOf[s]];
+            classes[c][fill[c]++] = s;
+        }
+        return classes;
+    }
+
+    // Whether statement s belongs to entity e
+    public boolean contains(int e, int s) {
+        return (membership[e * words + (s >> 6)] & (1L << (s & 63))) != 0;
+    }
+
+    // Whether entities e1 and e2 have a statement in common
+    public boolean intersect(int e1, int e2) {
+        for (int w = 0; w < words; w++) {
+            if ((membership[e1 * words + w] & membership[e2 * words + w]) != 0) return true;
+        }
+        return false;
+    }
+}
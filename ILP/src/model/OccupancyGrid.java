@@ -0,0 +1,127 @@
+package model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The cells of one or more solutions rasterised over a window [minX, maxX] x [minY, maxY], with per cell whether a
+// set covers it and whether an element is in it. Cells outside the window are ignored. The blank, vacant and hull
+// statistics are then sweeps over this grid instead of queries to every solution for every cell.
+public final class OccupancyGrid {
+    private static final byte SET = 1;
+    private static final byte ELEMENT = 2;
+
+    private final int minX;
+    private final int minY;
+    private final int width;
+    private final int height;
+    private final byte[] grid;
+
+    public OccupancyGrid(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.width = Math.max(0, maxX - minX + 1);
+        this.height = Math.max(0, maxY - minY + 1);
+        this.grid = new byte[width * height];
+    }
+
+    // The grid of all solutions of a layout over its bounding box
+    public static OccupancyGrid of(PositionedSolution layout) {
+        OccupancyGrid grid = new OccupancyGrid(0, 0, layout.width, layout.height);
+        for (Solution solution : layout.solutions) {
+            grid.add(solution);
+        }
+        return grid;
+    }
+
+    public void add(Solution solution) {
+        for (Point cell : solution.getCells()) {
+            mark(cell.x, cell.y, SET);
+        }
+        for (Point statement : solution.getStatementCells()) {
+            if (solution.hasStatement(statement.x, statement.y)) {
+                mark(statement.x, statement.y, ELEMENT);
+            }
+        }
+    }
+
+    // Cells with a set or an element
+    public int usedCells() {
+        int used = 0;
+        for (byte cell : grid) {
+            if (cell != 0) used++;
+        }
+        return used;
+    }
+
+    // Cells covered by a set but without an element
+    public int vacantCells() {
+        int vacant = 0;
+        for (byte cell : grid) {
+            if (cell == SET) vacant++;
+        }
+        return vacant;
+    }
+
+    // Unused cells in [minX, maxX] x [minY, maxY] that lie between used cells of the window in their row or column
+    public List<Point> blankOrthoconvexHullCells(int minX, int minY, int maxX, int maxY) {
+        List<Point> blank = new ArrayList<>();
+        sweepHull(minX, minY, maxX, maxY, blank);
+        return blank;
+    }
+
+    public int countBlankOrthoconvexHullCells(int minX, int minY, int maxX, int maxY) {
+        return sweepHull(minX, minY, maxX, maxY, null);
+    }
+
+    // One pass finds the extent of the used cells in every row and column of the window, a second one collects the
+    // unused cells within either extent
+    private int sweepHull(int minX, int minY, int maxX, int maxY, List<Point> blank) {
+        int w = Math.max(0, maxX - minX + 1);
+        int h = Math.max(0, maxY - minY + 1);
+        int[] rowMin = new int[h];
+        int[] rowMax = new int[h];
+        int[] columnMin = new int[w];
+        int[] columnMax = new int[w];
+        Arrays.fill(rowMin, Integer.MAX_VALUE);
+        Arrays.fill(rowMax, Integer.MIN_VALUE);
+        Arrays.fill(columnMin, Integer.MAX_VALUE);
+        Arrays.fill(columnMax, Integer.MIN_VALUE);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if (!isUsed(minX + x, minY + y)) continue;
+                rowMin[y] = Math.min(rowMin[y], x);
+                rowMax[y] = Math.max(rowMax[y], x);
+                columnMin[x] = Math.min(columnMin[x], y);
+                columnMax[x] = Math.max(columnMax[x], y);
+            }
+        }
+
+        int count = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if (isUsed(minX + x, minY + y)) continue;
+                if ((rowMin[y] <= x && x <= rowMax[y]) || (columnMin[x] <= y && y <= columnMax[x])) {
+                    count++;
+                    if (blank != null) blank.add(new Point(minX + x, minY + y));
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean isUsed(int x, int y) {
+        x -= this.minX;
+        y -= this.minY;
+        return x >= 0 && y >= 0 && x < width && y < height && grid[y * width + x] != 0;
+    }
+
+    private void mark(int x, int y, byte use) {
+        x -= minX;
+        y -= minY;
+        if (x >= 0 && y >= 0 && x < width && y < height) {
+            grid[y * width + x] |= use;
+        }
+    }
+}
@@ -13,6 +13,7 @@ public class PolygonSolution implements Solution {
     public int[][][] entities;
     public int[][] statementCoordinates;
     public ArrayList<Point> cells;
+    private CellIndex cellIndex = null; // built on the first cell query after the cells or statements changed
     public boolean shifted = false;
 
     public PolygonSolution(StatementEntityInstance inst, int w, int h, ArrayList<Integer> eIds, int[][][] entities,
@@ -49,6 +50,7 @@ public class PolygonSolution implements Solution {
     @Override
     public void setStartX(int x) {
         startX = x;
+        cellIndex = null;
     }
 
     @Override
@@ -59,6 +61,7 @@ public class PolygonSolution implements Solution {
     @Override
     public void setStartY(int y) {
         startY = y;
+        cellIndex = null;
     }
 
     @Override
@@ -73,19 +76,26 @@ public class PolygonSolution implements Solution {
 
     @Override
     public String getStatement(int x, int y) {
-        for (int k = 0; k != this.statementCoordinates.length; ++k) {
-            var coord = this.statementCoordinates[k];
-            if (coord[0] == x && coord[1] == y) {
-                int j = 0;
-                for (var key : instance.statements.keySet()) {
-                    if (j == k) {
-                        return instance.statements.get(key);
-                    }
-                    ++j;
-                }
+        return cellIndex().statement(x, y);
+    }
+
+    @Override
+    public boolean hasCell(int x, int y) {
+        return cellIndex().hasCell(x, y);
+    }
+
+    private CellIndex cellIndex() {
+        if (cellIndex == null || !cellIndex.indexes(cells)) {
+            int n = statementCoordinates == null ? 0 : statementCoordinates.length;
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int k = 0; k < n; k++) {
+                xs[k] = statementCoordinates[k][0];
+                ys[k] = statementCoordinates[k][1];
             }
+            cellIndex = new CellIndex(cells, xs, ys, instance);
         }
-        return "";
+        return cellIndex;
     }
 
     @Override
@@ -111,6 +121,7 @@ public class PolygonSolution implements Solution {
 
     public void setCells() {
         cells = new ArrayList<>();
+        cellIndex = null;
 
         for (int i = startX; i <= endX(); i++) {
             for (int j = startY; j <= endY(); j++) {
@@ -287,4 +298,11 @@ public class PolygonSolution implements Solution {
                 newStatementCoords
         );
     }
+
+    @Override
+    public PolygonSolution copyFor(StatementEntityInstance inst) {
+        PolygonSolution copy = copy();
+        copy.instance = inst;
+        return copy;
+    }
 }
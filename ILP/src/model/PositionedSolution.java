@@ -2,75 +2,33 @@ package model;
 
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class PositionedSolution {
     public final ArrayList<Solution> solutions;
     public final int width;
     public final int height;
+    // Per solution the variant (index among its distinct rotations and reflections) and position the arrangement
+    // chose, or null if unknown. Can be passed back to the arrangement as a warm start.
+    public final int[][] placements;
 
     public PositionedSolution(ArrayList<Solution> solutions, int width, int height) {
+        this(solutions, width, height, null);
+    }
+
+    public PositionedSolution(ArrayList<Solution> solutions, int width, int height, int[][] placements) {
         this.solutions = solutions;
         this.width = width;
         this.height = height;
+        this.placements = placements;
     }
 
     public final static PositionedSolution EMPTY = new PositionedSolution(new ArrayList<Solution>(), 0, 0);
 
-    boolean isUsed(int x, int y) {
-        for (var s : solutions) {
-            if (s.isUsed(x, y)) return true;
-        }
-        return false;
-    }
-
     /// Return the blank cells within the orthoconvex hull of used cells
     /// Blank = cell in the bounding box that has no set nor an element
     public List<Point> blankOrthoconvexHullCells() {
-        Set<Point> gaps = new HashSet<>();
-        for (int x = 0; x < width; ++x) {
-            int minY = height;
-            int maxY = 0;
-            for (int y = 0; y < height; ++y) {
-                if (isUsed(x, y)) {
-                    if (y < minY) {
-                        minY = y;
-                    }
-                    if (y > maxY) {
-                        maxY = y;
-                    }
-                }
-            }
-
-            for (int y = minY; y <= maxY; ++y) {
-                if (!isUsed(x, y)) {
-                    gaps.add(new Point(x, y));
-                }
-            }
-        }
-        for (int y = 0; y < height; ++y) {
-            int minX = width;
-            int maxX = 0;
-            for (int x = 0; x < width; ++x) {
-                if (isUsed(x, y)) {
-                    if (x < minX) {
-                        minX = x;
-                    }
-                    if (x > maxX) {
-                        maxX = x;
-                    }
-                }
-            }
-
-            for (int x = minX; x <= maxX; ++x) {
-                if (!isUsed(x, y)) {
-                    gaps.add(new Point(x, y));
-                }
-            }
-        }
-
-        return gaps.stream().toList();
+        // As before, the last row and column of the bounding box are not swept
+        return OccupancyGrid.of(this).blankOrthoconvexHullCells(0, 0, width - 1, height - 1);
     }
 }
\ No newline at end of file
@@ -34,6 +34,10 @@ public interface Solution {
 
     public Solution copy();
 
+    // A copy of this layout for another instance with the same entities and statements in the same key order, such
+    // as the same component of an edited instance
+    public Solution copyFor(StatementEntityInstance inst);
+
     public default Solution mirrored(boolean mirrorX, boolean mirrorY) {
         var c = copy();
         c.mirror(mirrorX, mirrorY);
@@ -87,49 +91,9 @@ public interface Solution {
     /// Blank = cell in the bounding box that has no set nor an element
     /// Note that in most cases we are interested in the blank orthoconvex hull cells of the PositionedSolution.
     public default List<Point> blankOrthoconvexHullCells() {
-        Set<Point> gaps = new HashSet<>();
-        for (int x = startX(); x <= endX(); ++x) {
-            int minY = endY();
-            int maxY = startY();
-            for (int y = startY(); y <= endY(); ++y) {
-                if (isUsed(x, y)) {
-                    if (y < minY) {
-                        minY = y;
-                    }
-                    if (y > maxY) {
-                        maxY = y;
-                    }
-                }
-            }
-
-            for (int y = minY; y <= maxY; ++y) {
-                if (!isUsed(x, y)) {
-                    gaps.add(new Point(x, y));
-                }
-            }
-        }
-        for (int y = startY(); y <= endY(); ++y) {
-            int minX = endX();
-            int maxX = startX();
-            for (int x = startX(); x <= endX(); ++x) {
-                if (isUsed(x, y)) {
-                    if (x < minX) {
-                        minX = x;
-                    }
-                    if (x > maxX) {
-                        maxX = x;
-                    }
-                }
-            }
-
-            for (int x = minX; x <= maxX; ++x) {
-                if (!isUsed(x, y)) {
-                    gaps.add(new Point(x, y));
-                }
-            }
-        }
-
-        return gaps.stream().toList();
+        OccupancyGrid grid = new OccupancyGrid(startX(), startY(), endX(), endY());
+        grid.add(this);
+        return grid.blankOrthoconvexHullCells(startX(), startY(), endX(), endY());
     }
 
     /// Return the vacant cells: cells that have a set but not an element.
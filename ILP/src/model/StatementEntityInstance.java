@@ -4,7 +4,9 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -12,13 +14,18 @@ import org.json.JSONObject;
 public class StatementEntityInstance {
     public int numberOfStatements;
     public int numberOfEntities;
-    public HashMap<Integer, String> statements;
-    public HashMap<Integer, String> entities;
+    // Maps of the instance itself, or views on the maps of the instance it was split from
+    public Map<Integer, String> statements;
+    public Map<Integer, String> entities;
 
     // map from entity index to statement indices corresponding to the indices in
     // the arrays entities, statements
     public HashMap<Integer, int[]> entityIndToStatements;
 
+    // Array form of the maps above, built when first needed. The maps stay the source of truth, so code that
+    // changes them has to call invalidateIncidence.
+    private InstanceIncidence incidence;
+
     // NEW Constructor to load JSON data from file (keeping the ids from the
     // dataset)
     public StatementEntityInstance(String jsonFilePath) {
@@ -81,8 +88,8 @@ public class StatementEntityInstance {
             Map<Integer, String> entities,
             Map<Integer, String> statements,
             Map<Integer, int[]> entityIndToStatements) {
-        this.entities = (HashMap<Integer, String>) entities;
-        this.statements = (HashMap<Integer, String>) statements;
+        this.entities = entities;
+        this.statements = statements;
         this.entityIndToStatements = (HashMap<Integer, int[]>) entityIndToStatements;
         this.numberOfEntities = entities.size();
         this.numberOfStatements = statements.size();
@@ -90,27 +97,37 @@ public class StatementEntityInstance {
 
     public StatementEntityInstance(int[] entities, int[] statements, HashMap<Integer, int[]> entityStatements,
             StatementEntityInstance inst) {
-        numberOfEntities = entities.length;
-        numberOfStatements = statements.length;
+        this(inst, toSet(entities), toSet(statements), entityStatements);
+    }
 
-        // Add entities
-        this.entities = new HashMap<>();
+    // A part of inst with the given entities, statements and memberships. The names and texts are not copied but
+    // looked up in inst, so the entity and statement maps of the part are views that only hold the ids.
+    public StatementEntityInstance(StatementEntityInstance inst, Set<Integer> entityIds, Set<Integer> statementIds,
+            Map<Integer, int[]> entityStatements) {
+        this.entities = new SubsetMap<>(inst.entities, entityIds);
+        this.statements = new SubsetMap<>(inst.statements, statementIds);
+        this.entityIndToStatements = new HashMap<>(entityStatements);
+        this.numberOfEntities = entityIds.size();
+        this.numberOfStatements = statementIds.size();
+    }
 
-        for (int i = 0; i < numberOfEntities; i++) {
-            String name = inst.entities.get(entities[i]);
-            this.entities.put(entities[i], name);
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids) {
+            set.add(id);
         }
+        return set;
+    }
 
-        // Add statements
-        this.statements = new HashMap<>();
-
-        for (int i = 0; i < numberOfStatements; i++) {
-            String text = inst.statements.get(statements[i]);
-            this.statements.put(statements[i], text);
+    public InstanceIncidence incidence() {
+        if (incidence == null) {
+            incidence = new InstanceIncidence(this);
         }
+        return incidence;
+    }
 
-        // Add entity to statement map
-        this.entityIndToStatements = new HashMap<>(entityStatements);
+    public void invalidateIncidence() {
+        incidence = null;
     }
 
     public void print() {
@@ -0,0 +1,87 @@
+package model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// The entries of a source map for a subset of its keys, without copying the values. Views of views read straight
+// from the original map. Keys can be removed, and added back with put as long as the value is the one the source
+// map has for them; any other value is rejected, as the view has nowhere to keep it.
+final class SubsetMap<V> extends AbstractMap<Integer, V> {
+    private final Map<Integer, V> source;
+    private final Set<Integer> keys;
+
+    // keys must be keys of source, and are used (and changed) by the view as they are
+    SubsetMap(Map<Integer, V> source, Set<Integer> keys) {
+        this.source = source instanceof SubsetMap<V> subset ? subset.source : source;
+        this.keys = keys;
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.contains(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return keys.contains(key) ? source.get(key) : null;
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        if (!source.containsKey(key) || !Objects.equals(source.get(key), value)) {
+            throw new IllegalArgumentException("A subset view can only hold the value of its source map for key " + key);
+        }
+        return keys.add(key) ? null : value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return keys.remove(key) ? source.get(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        keys.clear();
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                Iterator<Integer> it = keys.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, V> next() {
+                        Integer key = it.next();
+                        return new SimpleImmutableEntry<>(key, source.get(key));
+                    }
+
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+}
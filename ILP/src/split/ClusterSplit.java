@@ -1,6 +1,7 @@
 package split;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -22,6 +23,7 @@ import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Set;
 
+import model.InstanceIncidence;
 import model.StatementEntityInstance;
 
 // Impelements RectEuler split.
@@ -92,6 +94,64 @@ public class ClusterSplit {
         }
     }
 
+    // Same split as splitWithPython, but clusters the statements with the k-medoids implementation in KMedoids
+    // instead of running cluster_split.py
+    public List<StatementEntityInstance> split(int k, int randomState, int minClusterSize) {
+        long vectorStart = System.nanoTime();
+        BooleanVectorData data = buildStatementBooleanVectors(this.instance);
+
+        int n = data.statementIdsInOrder.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("No statements to cluster");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("The number of clusters must be at least 1");
+        }
+        if (k > n) {
+            throw new IllegalArgumentException("The number of clusters cannot exceed the number of statements");
+        }
+
+        long[][] packed = new long[n][];
+        for (int i = 0; i < n; i++) {
+            packed[i] = KMedoids.pack(data.vectors[i]);
+        }
+        KMedoids kMedoids = new KMedoids(packed);
+
+        // Retry with the seed multiplied by 11 as long as some cluster is too small, at most 4 times (as RectEuler)
+        long seed = randomState;
+        for (int numTry = 0; ; numTry++) {
+            kMedoids.fit(k, seed);
+            if (numTry > 3 || !hasSmallCluster(kMedoids.assignments, k, minClusterSize)) {
+                break;
+            }
+            seed *= 11;
+        }
+
+        List<StatementEntityInstance> clusteredInstances = buildClusteredInstancesFromAssignments(
+                this.instance,
+                data.statementIdsInOrder,
+                kMedoids.assignments,
+                k);
+        long rebuildEnd = System.nanoTime();
+
+        double totalTime = (rebuildEnd - vectorStart) / 1_000_000_000.0;
+        System.out.println("Cluster split time: " + totalTime + "s");
+        return clusteredInstances;
+    }
+
+    private static boolean hasSmallCluster(int[] assignments, int k, int minClusterSize) {
+        int[] sizes = new int[k];
+        for (int cluster : assignments) {
+            sizes[cluster]++;
+        }
+        for (int size : sizes) {
+            if (size <= minClusterSize) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static BooleanVectorData buildStatementBooleanVectors(StatementEntityInstance instance) {
         // Fix a deterministic order for statements and entities
         // so Java and Python interpret rows/columns identically.
@@ -114,16 +174,11 @@ public class ClusterSplit {
             entityIdsInOrder[j] = entityIdList.get(j);
         }
 
-        // Build lookup: statement ID -> row index
-        Map<Integer, Integer> statementIdToRow = new HashMap<>();
+        // Row of every statement and column of every entity of the incidence
+        InstanceIncidence incidence = instance.incidence();
+        int[] rowOf = new int[incidence.numberOfStatements()];
         for (int i = 0; i < nStatements; i++) {
-            statementIdToRow.put(statementIdsInOrder[i], i);
-        }
-
-        // Build lookup: entity ID -> column index
-        Map<Integer, Integer> entityIdToCol = new HashMap<>();
-        for (int j = 0; j < nEntities; j++) {
-            entityIdToCol.put(entityIdsInOrder[j], j);
+            rowOf[incidence.statementIndex(statementIdsInOrder[i])] = i;
         }
 
         // Build matrix[row][col]
@@ -132,24 +187,9 @@ public class ClusterSplit {
         // true iff statement belongs to that entity
         boolean[][] vectors = new boolean[nStatements][nEntities];
 
-        for (Map.Entry<Integer, int[]> entry : instance.entityIndToStatements.entrySet()) {
-            int entityId = entry.getKey();
-            Integer col = entityIdToCol.get(entityId);
-
-            if (col == null) {
-                continue;
-            }
-
-            int[] statementIds = entry.getValue();
-            if (statementIds == null) {
-                continue;
-            }
-
-            for (int statementId : statementIds) {
-                Integer row = statementIdToRow.get(statementId);
-                if (row != null) {
-                    vectors[row][col] = true;
-                }
+        for (int col = 0; col < nEntities; col++) {
+            for (int s : incidence.statementsOf(incidence.entityIndex(entityIdsInOrder[col]))) {
+                vectors[rowOf[s]][col] = true;
             }
         }
 
@@ -254,39 +294,31 @@ public class ClusterSplit {
         for (int c = 0; c < k; c++) {
             Set<Integer> clusterStatementIds = clusterToStatementIds.get(c);
 
-            Map<Integer, String> newStatements = new HashMap<>();
-            for (int statementId : clusterStatementIds) {
-                newStatements.put(statementId, originalInstance.statements.get(statementId));
-            }
-
-            Map<Integer, String> newEntities = new HashMap<>();
+            Set<Integer> newEntities = new HashSet<>();
             Map<Integer, int[]> newEntityToStatements = new HashMap<>();
 
             for (Map.Entry<Integer, int[]> entry : originalInstance.entityIndToStatements.entrySet()) {
                 int entityId = entry.getKey();
                 int[] oldStatementIds = entry.getValue();
+                if (oldStatementIds == null) {
+                    continue;
+                }
 
-                List<Integer> kept = new ArrayList<>();
-                if (oldStatementIds != null) {
-                    for (int stmtId : oldStatementIds) {
-                        if (clusterStatementIds.contains(stmtId)) {
-                            kept.add(stmtId);
-                        }
+                int[] kept = new int[oldStatementIds.length];
+                int nKept = 0;
+                for (int stmtId : oldStatementIds) {
+                    if (clusterStatementIds.contains(stmtId)) {
+                        kept[nKept++] = stmtId;
                     }
                 }
 
-                if (!kept.isEmpty()) {
-                    newEntities.put(entityId, originalInstance.entities.get(entityId));
-
-                    int[] keptArray = new int[kept.size()];
-                    for (int i = 0; i < kept.size(); i++) {
-                        keptArray[i] = kept.get(i);
-                    }
-                    newEntityToStatements.put(entityId, keptArray);
+                if (nKept > 0) {
+                    newEntities.add(entityId);
+                    newEntityToStatements.put(entityId, Arrays.copyOf(kept, nKept));
                 }
             }
 
-            result.add(new StatementEntityInstance(newEntities, newStatements, newEntityToStatements));
+            result.add(new StatementEntityInstance(originalInstance, newEntities, clusterStatementIds, newEntityToStatements));
         }
 
         return result;
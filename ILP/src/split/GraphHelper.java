@@ -2,8 +2,10 @@ package split;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
+import model.InstanceIncidence;
 import model.StatementEntityInstance;
 
 public class GraphHelper {
@@ -11,6 +13,7 @@ public class GraphHelper {
     HashMap<Integer, ArrayList<Integer>> invertedDeleted;
     HashMap<Integer, ArrayList<Integer>> invertedNonDeleted;
     ArrayList<Node> deletedNodes;
+    HashSet<Integer> deletedIds;
     ArrayList<DeletedNodeGroup> groups;
 
     GraphHelper(StatementEntityInstance instance) {
@@ -18,11 +21,13 @@ public class GraphHelper {
         this.invertedDeleted = new HashMap<>();
         this.invertedNonDeleted = new HashMap<>();
         this.deletedNodes = new ArrayList<>();
+        this.deletedIds = new HashSet<>();
         this.groups = new ArrayList<>();
     }
 
-    public void setup(ArrayList<Node> deleted) {
+    public void setup(ArrayList<Node> deleted, HashSet<Integer> deletedIds) {
         setDeleted(deleted);
+        this.deletedIds = deletedIds;
         createMaps();
         createGroups();
     }
@@ -42,17 +47,17 @@ public class GraphHelper {
     }
 
     private void createMaps() {
-        HashMap<Integer, int[]> entityStatementMap = instance.entityIndToStatements;
+        InstanceIncidence incidence = instance.incidence();
+        // Go through all statements
+        for (int s = 0; s < incidence.numberOfStatements(); s++) {
+            int id = incidence.statementId(s);
 
-        // Go through all entities
-        for (Integer entity : entityStatementMap.keySet()) {
-            // Go through each entity's statements
-            for (int i = 0; i < entityStatementMap.get(entity).length; i++) {
-                // Get statement ID
-                int id = entityStatementMap.get(entity)[i];
+            // Go through the entities of each statement
+            for (int e : incidence.entitiesOf(s)) {
+                int entity = incidence.entityId(e);
 
                 // If the entity has been deleted, add it to the deleted map
-                if (deletedNodes.stream().anyMatch(o -> entity == o.id)) {
+                if (deletedIds.contains(entity)) {
                     invertedDeleted.computeIfAbsent(id, k -> new ArrayList<>()).add(entity);
                 }
                 // Otherwise add it to the non-deleted map
@@ -1,9 +1,10 @@
 package split;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.stream.IntStream;
 
-import io.StatsRecorder;
 import model.StatementEntityInstance;
 
 public class GreedySplit {
@@ -12,6 +13,9 @@ public class GreedySplit {
     int nStatements;
     public ArrayList<Integer> deletedEntities;
 
+    // Cost of every component that is larger than allowed
+    private static final int OVERSIZED_WEIGHT = 10;
+
     public GreedySplit(StatementEntityInstance instance) {
         this.instance = instance;
         this.nEntities = instance.numberOfEntities;
@@ -25,41 +29,31 @@ public class GreedySplit {
         // Make an intersection graph for the parent instance
         IntersectionGraph graph = new IntersectionGraph(instance);
         int n = graph.intersectionGraph.length;
+        int minAllowed = (int) Math.ceil(alpha * n);
+        int maxAllowed = (int) Math.floor((1 - alpha) * n);
 
         // Store the best split so far
-        double bestCost = Double.MAX_VALUE;
-        IntersectionGraph bestSplit = graph;
-
-        // Get all possible combinations of deleted nodes
-        ArrayList<ArrayList<Integer>> combinations = generateCombinations(n,
-                Math.min(s, instance.numberOfEntities - 1));
-
-        // For each combination make the split and evaluate its cost
-        for (ArrayList<Integer> combination : combinations) {
-            // Make a new graph
-            IntersectionGraph split = new IntersectionGraph(instance);
-            int initSize = split.components.size();
-
-            // Make the split
-            split.split(combination);
-
-            split.merge(alpha);
-
-            split.addDeletedNodes();
-
-            // Evaluate the cost of the split
-            double cost = cost(split, alpha, initSize);
-
-            // Store the split with minimal cost
-            if (cost < bestCost) {
-                bestCost = cost;
-                bestSplit = split;
-            }
+        BestSplit best = new BestSplit();
+
+        // Go through the combinations of deleted nodes by increasing size, and in lexicographic order within a size,
+        // keeping the first split with minimal cost (as the full enumeration did)
+        int maxDeleted = Math.min(s, instance.numberOfEntities - 1);
+        for (int size = 1; size <= maxDeleted; size++) {
+            // A split deleting size nodes costs at least size + 3 (two components and a size ratio of at least one),
+            // and it would come after the best split found for a smaller size
+            if (best.cost <= size + 3)
+                break;
+
+            final int k = size;
+            // Every first deleted node starts its own part of the enumeration
+            IntStream.range(0, n - k + 1).parallel()
+                    .forEach(first -> searchCombinations(graph, first, k, alpha, minAllowed, maxAllowed, best));
         }
 
-        if (bestCost == Double.MAX_VALUE) {
+        IntersectionGraph bestSplit;
+        if (best.split == null) {
             // Make a new graph
-            IntersectionGraph split = new IntersectionGraph(instance);
+            IntersectionGraph split = new IntersectionGraph(graph);
 
             ArrayList<Integer> allNodes = new ArrayList<>();
             for (int i = 0; i < split.intersectionGraph.length; i++) {
@@ -74,6 +68,8 @@ public class GreedySplit {
             split.addDeletedNodes();
 
             bestSplit = split;
+        } else {
+            bestSplit = best.split;
         }
 
         getDeletedEntities(bestSplit);
@@ -84,6 +80,167 @@ public class GreedySplit {
         return finalInstances;
     }
 
+    // Evaluates the combinations of k deleted nodes whose lowest index is first. Only combinations whose lower bound
+    // can still beat the best split are actually split, merged and costed.
+    private void searchCombinations(IntersectionGraph graph, int first, int k, double alpha, int minAllowed,
+                                    int maxAllowed, BestSplit best) {
+        int n = graph.intersectionGraph.length;
+        int[] adjacencyStart = graph.adjacencyStart;
+        int[] adjacency = graph.adjacency;
+        int[] combination = new int[k];
+        combination[0] = first;
+        for (int i = 1; i < k; i++) combination[i] = first + i;
+
+        boolean[] deleted = new boolean[n];
+        // Components of the graph without the first k - 1 deleted nodes, which only change once in n - k combinations
+        int[] prefixComponentOf = new int[n];
+        int[] prefixSizes = new int[n];
+        int prefixComponents = 0;
+        boolean prefixChanged = true;
+        int[] componentOf = new int[n];
+        int[] stack = new int[n];
+        boolean[] seen = new boolean[2 * n];
+        ArrayList<Integer> componentSizes = new ArrayList<>();
+
+        do {
+            if (prefixChanged) {
+                for (int i = 0; i < k - 1; i++) deleted[combination[i]] = true;
+                Arrays.fill(prefixComponentOf, -1);
+                prefixComponents = 0;
+                for (int root = 0; root < n; root++) {
+                    if (deleted[root] || prefixComponentOf[root] != -1) continue;
+                    prefixSizes[prefixComponents] = label(graph, root, -1, prefixComponents, prefixComponentOf,
+                            deleted, stack);
+                    prefixComponents++;
+                }
+            }
+
+            // Deleting the last node only splits its own component, into parts that each contain a neighbour of it
+            int last = combination[k - 1];
+            deleted[last] = true;
+            int affected = prefixComponentOf[last];
+            System.arraycopy(prefixComponentOf, 0, componentOf, 0, n);
+            componentSizes.clear();
+            for (int c = 0; c < prefixComponents; c++) {
+                if (c != affected) componentSizes.add(prefixSizes[c]);
+            }
+            int component = prefixComponents;
+            for (int a = adjacencyStart[last]; a < adjacencyStart[last + 1]; a++) {
+                int next = adjacency[a];
+                if (deleted[next] || componentOf[next] != affected) continue;
+                componentSizes.add(label(graph, next, affected, component, componentOf, deleted, stack));
+                component++;
+            }
+
+            // Deleting these nodes does not split the graph
+            if (componentSizes.size() > 1) {
+                // The merge only depends on the component sizes, so the components that remain after merging are
+                // known. Adding the deleted nodes back does not change them, except that every deleted node gets a
+                // copy in each component it is next to, and no component gets more than one copy of a node. Every
+                // merge joins two components, so a deleted node is next to at least as many merged components as
+                // it is next to components before merging, minus the number of merges.
+                int unmerged = componentSizes.size();
+                mergedSizes(componentSizes, minAllowed, maxAllowed);
+                int merges = unmerged - componentSizes.size();
+                int lowerBound = componentSizes.size() + k;
+                for (int size : componentSizes) {
+                    if (size > maxAllowed) lowerBound += OVERSIZED_WEIGHT;
+                }
+                for (int i : combination) {
+                    int neighbouring = 0;
+                    for (int a = adjacencyStart[i]; a < adjacencyStart[i + 1]; a++) {
+                        int next = adjacency[a];
+                        if (!deleted[next] && !seen[componentOf[next]]) {
+                            seen[componentOf[next]] = true;
+                            neighbouring++;
+                        }
+                    }
+                    for (int a = adjacencyStart[i]; a < adjacencyStart[i + 1]; a++) {
+                        if (!deleted[adjacency[a]]) seen[componentOf[adjacency[a]]] = false;
+                    }
+                    if (neighbouring > 0) lowerBound += Math.max(neighbouring - merges, 1);
+                }
+                int smallest = componentSizes.get(0);
+                int largest = componentSizes.get(componentSizes.size() - 1);
+                double lowerRatio = Math.max((double) largest / (double) (smallest + k), 1.0);
+
+                if (best.mayImprove(lowerBound + lowerRatio, combination)) {
+                    IntersectionGraph split = new IntersectionGraph(graph);
+                    int initSize = split.components.size();
+
+                    ArrayList<Integer> deletedNodes = new ArrayList<>();
+                    for (int i : combination) deletedNodes.add(i);
+
+                    // Make the split
+                    split.split(deletedNodes);
+
+                    split.merge(alpha);
+
+                    split.addDeletedNodes();
+
+                    // Evaluate the cost of the split
+                    best.offer(cost(split, alpha, initSize), combination, split);
+                }
+            }
+
+            deleted[last] = false;
+            // The next combination has another last node, or else a new prefix
+            prefixChanged = last == n - 1;
+            if (prefixChanged) {
+                for (int i = 0; i < k - 1; i++) deleted[combination[i]] = false;
+            }
+        } while (nextCombination(combination, n));
+    }
+
+    // Moves root and every node reachable from it through nodes that are not deleted from component from to component
+    // to, and returns the number of nodes moved
+    private static int label(IntersectionGraph graph, int root, int from, int to, int[] componentOf,
+                             boolean[] deleted, int[] stack) {
+        int[] adjacencyStart = graph.adjacencyStart;
+        int[] adjacency = graph.adjacency;
+        int size = 0;
+        int top = 0;
+        stack[top++] = root;
+        componentOf[root] = to;
+        while (top > 0) {
+            int node = stack[--top];
+            size++;
+            for (int a = adjacencyStart[node]; a < adjacencyStart[node + 1]; a++) {
+                int next = adjacency[a];
+                if (!deleted[next] && componentOf[next] == from) {
+                    componentOf[next] = to;
+                    stack[top++] = next;
+                }
+            }
+        }
+        return size;
+    }
+
+    // Sizes of the components after IntersectionGraph.merge, given the sizes before
+    private static void mergedSizes(ArrayList<Integer> sizes, int minAllowed, int maxAllowed) {
+        Collections.sort(sizes);
+        while (sizes.get(0) < minAllowed && sizes.size() > 2) {
+            if (sizes.get(0) + sizes.get(1) > maxAllowed)
+                break;
+            sizes.set(1, sizes.get(0) + sizes.get(1));
+            sizes.remove(0);
+            Collections.sort(sizes);
+        }
+    }
+
+    // Advances to the next combination with the same first node in lexicographic order, if there is one
+    private static boolean nextCombination(int[] combination, int n) {
+        int k = combination.length;
+        for (int i = k - 1; i > 0; i--) {
+            if (combination[i] < n - k + i) {
+                combination[i]++;
+                for (int j = i + 1; j < k; j++) combination[j] = combination[j - 1] + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
     // Create an array list containing the indices of the deleted nodes from this
     // split
     private void getDeletedEntities(IntersectionGraph graph) {
@@ -92,25 +249,30 @@ public class GreedySplit {
         }
     }
 
-    public static ArrayList<ArrayList<Integer>> generateCombinations(int n, int s) {
-        ArrayList<ArrayList<Integer>> result = new ArrayList<>();
-        for (int size = 1; size <= s; size++) {
-            backtrack(n, size, 0, new ArrayList<>(), result);
+    // Best split found so far by any of the threads. Ties are broken by the position of the combination in the
+    // enumeration order, so the result does not depend on the order in which the threads find them.
+    private static class BestSplit {
+        volatile double cost = Double.MAX_VALUE;
+        int[] combination = null;
+        IntersectionGraph split = null;
+
+        synchronized boolean mayImprove(double lowerBound, int[] candidate) {
+            return lowerBound < cost || (lowerBound == cost && comesBefore(candidate, combination));
         }
-        return result;
-    }
 
-    private static void backtrack(int n, int size, int start, ArrayList<Integer> current,
-            ArrayList<ArrayList<Integer>> result) {
-        if (current.size() == size) {
-            result.add(new ArrayList<>(current));
-            return;
+        synchronized void offer(double candidateCost, int[] candidate, IntersectionGraph candidateSplit) {
+            if (candidateCost == Double.MAX_VALUE) return;
+            if (candidateCost < cost || (candidateCost == cost && comesBefore(candidate, combination))) {
+                cost = candidateCost;
+                combination = candidate.clone();
+                split = candidateSplit;
+            }
         }
 
-        for (int i = start; i < n; i++) {
-            current.add(i);
-            backtrack(n, size, i + 1, current, result);
-            current.remove(current.size() - 1);
+        private static boolean comesBefore(int[] a, int[] b) {
+            if (b == null) return true;
+            if (a.length != b.length) return a.length < b.length;
+            return Arrays.compare(a, b) < 0;
         }
     }
 
@@ -124,7 +286,7 @@ public class GreedySplit {
         cost += graph.deletedNodes.size();
         cost += graph.deletedNodeCopies.size();
 
-        int w = 10;
+        int w = OVERSIZED_WEIGHT;
         int maxAllowed = (int) Math.floor((1 - alpha) * graph.intersectionGraph.length);
 
         for (ArrayList<Node> component : graph.components) {
@@ -0,0 +1,141 @@
+package split;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.StatementEntityInstance;
+
+// Maps the components of a previous split onto an edited version of the instance.
+//
+// Every statement ends up in exactly one component of a split, together with all entities it belongs to. Statements
+// that still exist stay in the component they were in. A new statement joins the component that contains most of its
+// entities, and statements that share no entity with any component form a new component of their own. A component
+// that ends up with the same statements and the same memberships as before is unchanged and its layout can be
+// reused; only the other components have to be solved (and possibly split) again.
+public class IncrementalSplit {
+
+    public record ComponentUpdate(StatementEntityInstance instance, int previousComponent, boolean unchanged) {
+    }
+
+    public static List<ComponentUpdate> update(List<StatementEntityInstance> previousComponents,
+                                               StatementEntityInstance instance) {
+        int nPrevious = previousComponents.size();
+
+        HashMap<Integer, Integer> statementToComponent = new HashMap<>();
+        List<Set<Integer>> componentEntities = new ArrayList<>();
+        for (int k = 0; k < nPrevious; k++) {
+            StatementEntityInstance component = previousComponents.get(k);
+            for (Integer statementId : component.statements.keySet()) {
+                statementToComponent.put(statementId, k);
+            }
+            componentEntities.add(component.entities.keySet());
+        }
+
+        // Entities of each statement in the new instance
+        HashMap<Integer, List<Integer>> statementEntities = new HashMap<>();
+        for (Integer entityId : instance.entities.keySet()) {
+            int[] members = instance.entityIndToStatements.get(entityId);
+            if (members == null) continue;
+            for (int statementId : members) {
+                if (!instance.statements.containsKey(statementId)) continue;
+                List<Integer> entities = statementEntities.computeIfAbsent(statementId, s -> new ArrayList<>());
+                if (!entities.contains(entityId)) entities.add(entityId);
+            }
+        }
+
+        // Component index nPrevious collects the statements that do not fit any previous component
+        List<LinkedHashSet<Integer>> componentStatements = new ArrayList<>();
+        for (int k = 0; k <= nPrevious; k++) componentStatements.add(new LinkedHashSet<>());
+
+        for (Integer statementId : instance.statements.keySet()) {
+            Integer k = statementToComponent.get(statementId);
+            if (k == null) {
+                k = bestComponent(statementEntities.getOrDefault(statementId, List.of()), componentEntities);
+            }
+            componentStatements.get(k).add(statementId);
+        }
+
+        List<ComponentUpdate> updates = new ArrayList<>();
+        for (int k = 0; k <= nPrevious; k++) {
+            if (componentStatements.get(k).isEmpty()) continue;
+
+            StatementEntityInstance derived = restrict(instance, componentStatements.get(k), statementEntities);
+            if (k == nPrevious) {
+                updates.add(new ComponentUpdate(derived, -1, false));
+                continue;
+            }
+
+            StatementEntityInstance previous = previousComponents.get(k);
+            if (sameIncidence(previous, derived)) {
+                // The same part of the new instance, so it has the new names and texts, but with the key order of the
+                // previous component, which the previous layout follows
+                StatementEntityInstance reused = new StatementEntityInstance(instance,
+                        new LinkedHashSet<>(previous.entities.keySet()), new LinkedHashSet<>(previous.statements.keySet()),
+                        previous.entityIndToStatements);
+                updates.add(new ComponentUpdate(reused, k, true));
+            } else {
+                updates.add(new ComponentUpdate(derived, k, false));
+            }
+        }
+        return updates;
+    }
+
+    // The component sharing the most entities with the statement, or the new component if it shares none
+    private static int bestComponent(List<Integer> entities, List<Set<Integer>> componentEntities) {
+        int best = componentEntities.size();
+        int bestOverlap = 0;
+        for (int k = 0; k < componentEntities.size(); k++) {
+            int overlap = 0;
+            for (Integer entityId : entities) {
+                if (componentEntities.get(k).contains(entityId)) overlap++;
+            }
+            if (overlap > bestOverlap) {
+                bestOverlap = overlap;
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    // The sub-instance with the given statements and every entity that contains at least one of them
+    private static StatementEntityInstance restrict(StatementEntityInstance instance, Set<Integer> statementIds,
+                                                    Map<Integer, List<Integer>> statementEntities) {
+        LinkedHashMap<Integer, List<Integer>> entityStatements = new LinkedHashMap<>();
+        for (Integer statementId : statementIds) {
+            for (Integer entityId : statementEntities.getOrDefault(statementId, List.of())) {
+                entityStatements.computeIfAbsent(entityId, e -> new ArrayList<>()).add(statementId);
+            }
+        }
+
+        int[] entities = entityStatements.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] statements = statementIds.stream().mapToInt(Integer::intValue).toArray();
+        HashMap<Integer, int[]> memberships = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : entityStatements.entrySet()) {
+            memberships.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return new StatementEntityInstance(entities, statements, memberships, instance);
+    }
+
+    private static boolean sameIncidence(StatementEntityInstance a, StatementEntityInstance b) {
+        if (!a.statements.keySet().equals(b.statements.keySet())) return false;
+        if (!a.entities.keySet().equals(b.entities.keySet())) return false;
+        for (Integer entityId : a.entities.keySet()) {
+            int[] membersA = a.entityIndToStatements.get(entityId);
+            int[] membersB = b.entityIndToStatements.get(entityId);
+            if (membersA == null || membersB == null) {
+                if (membersA != membersB) return false;
+                continue;
+            }
+            int[] sortedA = Arrays.stream(membersA).distinct().sorted().toArray();
+            int[] sortedB = Arrays.stream(membersB).distinct().sorted().toArray();
+            if (!Arrays.equals(sortedA, sortedB)) return false;
+        }
+        return true;
+    }
+}
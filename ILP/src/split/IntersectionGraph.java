@@ -1,9 +1,10 @@
 package split;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 
 import model.StatementEntityInstance;
 
@@ -60,87 +61,141 @@ public class IntersectionGraph {
     ArrayList<ArrayList<Node>> components = new ArrayList<>();
     private int maxComponent = 0;
     ArrayList<Node> deletedNodes = new ArrayList<>();
+    // Ids of deletedNodes
+    HashSet<Integer> deletedIds = new HashSet<>();
     ArrayList<Node> deletedNodeCopies = new ArrayList<>();
     GraphHelper helper;
 
+    // Adjacency in compressed sparse row form: the neighbours of node i are
+    // adjacency[adjacencyStart[i]] .. adjacency[adjacencyStart[i + 1] - 1], by increasing index
+    int[] adjacencyStart;
+    int[] adjacency;
+    // Node id -> index in intersectionGraph
+    private HashMap<Integer, Integer> indexOfId;
+
     public IntersectionGraph(StatementEntityInstance instance) {
         createGraph(instance);
         helper = new GraphHelper(instance);
     }
 
-    public int getGraphIndexFromId(int id) {
+    // Copy of a graph that has not been split yet, so that several splits can start from one graph construction
+    public IntersectionGraph(IntersectionGraph other) {
+        intersectionGraph = new Node[other.intersectionGraph.length];
         for (int i = 0; i < intersectionGraph.length; i++) {
-            if (intersectionGraph[i].id == id) {
-                return i;
-            }
+            intersectionGraph[i] = other.intersectionGraph[i].copy();
+            intersectionGraph[i].uniqueStatements = new HashSet<>();
         }
 
-        System.out.println("Something went wrong");
-        return -1;
-    }
-
-    private void initEdge(int entity1, int entity2) {
-        boolean edgeExists = false;
-        for (Edge e : intersectionGraph[getGraphIndexFromId(entity1)].adj) {
-            if (e.target == entity2) {
-                edgeExists = true;
+        for (ArrayList<Node> component : other.components) {
+            ArrayList<Node> componentCopy = new ArrayList<>();
+            for (Node node : component) {
+                componentCopy.add(intersectionGraph[other.getGraphIndexFromId(node.id)]);
             }
+            components.add(componentCopy);
         }
 
-        if (!edgeExists) {
-            intersectionGraph[getGraphIndexFromId(entity1)].adj.add(new Edge(entity2));
-            intersectionGraph[getGraphIndexFromId(entity2)].adj.add(new Edge(entity1));
-        }
-    }
-
-    private void addStatement(StatementEntityInstance instance, int entity1, int entity2, int stInd) {
-        for (Edge e : intersectionGraph[getGraphIndexFromId(entity1)].adj) {
-            if (e.target == entity2) {
-                e.statements.add(instance.entityIndToStatements.get(entity1)[stInd]);
-            }
-        }
+        // The index arrays do not change when the graph is split
+        adjacencyStart = other.adjacencyStart;
+        adjacency = other.adjacency;
+        indexOfId = other.indexOfId;
 
-        for (Edge e : intersectionGraph[getGraphIndexFromId(entity2)].adj) {
-            if (e.target == entity1) {
-                e.statements.add(instance.entityIndToStatements.get(entity1)[stInd]);
-            }
-        }
+        maxComponent = other.maxComponent;
+        helper = new GraphHelper(other.helper.instance);
     }
 
-    public void createEdge(StatementEntityInstance instance, int entity1, int entity2) {
-        // Go through both statement lists
-        for (int k = 0; k < instance.entityIndToStatements.get(entity1).length; k++) {
-            for (int l = 0; l < instance.entityIndToStatements.get(entity2).length; l++) {
-                // They share some statement
-                if (instance.entityIndToStatements.get(entity1)[k] == instance.entityIndToStatements.get(entity2)[l]) {
-                    initEdge(entity1, entity2);
-                    addStatement(instance, entity1, entity2, k);
-                }
-            }
+    public int getGraphIndexFromId(int id) {
+        Integer index = indexOfId.get(id);
+        if (index != null) {
+            return index;
         }
+
+        System.out.println("Something went wrong");
+        return -1;
     }
 
     private void createGraph(StatementEntityInstance instance) {
-        intersectionGraph = new Node[instance.numberOfEntities];
+        int n = instance.entities.size();
+        intersectionGraph = new Node[n];
+        indexOfId = new HashMap<>();
 
+        int[][] entityStatements = new int[n][];
         int ind = 0;
         for (Integer entityId : instance.entities.keySet()) {
             intersectionGraph[ind] = new Node(entityId);
+            indexOfId.put(entityId, ind);
+            entityStatements[ind] = instance.entityIndToStatements.get(entityId);
             ind++;
         }
 
-        // Create edges
-        List<Integer> keys = new ArrayList<>(instance.entities.keySet()); // Get all keys as a list
+        // Statement -> indices of the entities containing it (once for every occurrence), by increasing index
+        HashMap<Integer, ArrayList<Integer>> statementEntities = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            for (int statement : entityStatements[i]) {
+                statementEntities.computeIfAbsent(statement, k -> new ArrayList<>()).add(i);
+            }
+        }
 
-        for (int i = 0; i < keys.size(); i++) {
-            for (int j = i + 1; j < keys.size(); j++) {
-                int entity1 = keys.get(i);
-                int entity2 = keys.get(j);
+        /* Create edges */
+
+        // Edges as (lower index, higher index) pairs by increasing lower and then higher index, with the shared
+        // statements in the order of the statement array of the lower entity
+        ArrayList<int[]> edges = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> edgeStatements = new ArrayList<>();
+        int[] degree = new int[n];
+
+        int[] slot = new int[n];
+        Arrays.fill(slot, -1);
+        for (int i = 0; i < n; i++) {
+            ArrayList<Integer> neighbours = new ArrayList<>();
+            ArrayList<ArrayList<Integer>> shared = new ArrayList<>();
+            for (int statement : entityStatements[i]) {
+                for (int j : statementEntities.get(statement)) {
+                    if (j <= i)
+                        continue;
+                    if (slot[j] == -1) {
+                        slot[j] = shared.size();
+                        neighbours.add(j);
+                        shared.add(new ArrayList<>());
+                    }
+                    shared.get(slot[j]).add(statement);
+                }
+            }
 
-                createEdge(instance, entity1, entity2);
+            Collections.sort(neighbours);
+            for (int j : neighbours) {
+                edges.add(new int[]{i, j});
+                edgeStatements.add(shared.get(slot[j]));
+                degree[i]++;
+                degree[j]++;
+            }
+            for (int j : neighbours) {
+                slot[j] = -1;
             }
         }
 
+        adjacencyStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            adjacencyStart[i + 1] = adjacencyStart[i] + degree[i];
+        }
+        adjacency = new int[adjacencyStart[n]];
+
+        // Filling in the edges in order keeps every adjacency list sorted
+        int[] fill = Arrays.copyOf(adjacencyStart, n);
+        for (int k = 0; k < edges.size(); k++) {
+            int i = edges.get(k)[0];
+            int j = edges.get(k)[1];
+            adjacency[fill[i]++] = j;
+            adjacency[fill[j]++] = i;
+
+            Edge forward = new Edge(intersectionGraph[j].id);
+            forward.statements.addAll(edgeStatements.get(k));
+            intersectionGraph[i].adj.add(forward);
+
+            Edge backward = new Edge(intersectionGraph[i].id);
+            backward.statements.addAll(edgeStatements.get(k));
+            intersectionGraph[j].adj.add(backward);
+        }
+
         /* Initialize components */
 
         // Restart dfs // just in case
@@ -149,9 +204,10 @@ public class IntersectionGraph {
         }
 
         // Find and assign components with dfs
-        for (Node node : intersectionGraph) {
+        for (int i = 0; i < n; i++) {
+            Node node = intersectionGraph[i];
             if (!node.visited && !node.deleted) {
-                dfs(getGraphIndexFromId(node.id), maxComponent);
+                dfs(i, maxComponent);
                 maxComponent++;
             }
         }
@@ -170,6 +226,7 @@ public class IntersectionGraph {
     private void deleteNode(int nodeIndex) {
         // Delete node
         deletedNodes.add(intersectionGraph[nodeIndex]);
+        deletedIds.add(intersectionGraph[nodeIndex].id);
         intersectionGraph[nodeIndex].deleted = true;
     }
 
@@ -222,17 +279,27 @@ public class IntersectionGraph {
         }
     }
 
+    // Assigns the component to every node that can be reached from the given node without passing a deleted node
     private void dfs(int node, int component) {
-        if (intersectionGraph[node].visited)
-            return;
-        if (intersectionGraph[node].deleted)
+        if (intersectionGraph[node].visited || intersectionGraph[node].deleted)
             return;
 
+        int[] stack = new int[intersectionGraph.length];
+        int top = 0;
+        stack[top++] = node;
         intersectionGraph[node].visited = true;
         intersectionGraph[node].comp = component;
 
-        for (Edge e : intersectionGraph[node].adj) {
-            dfs(getGraphIndexFromId(e.target), component);
+        while (top > 0) {
+            int current = stack[--top];
+            for (int k = adjacencyStart[current]; k < adjacencyStart[current + 1]; k++) {
+                Node next = intersectionGraph[adjacency[k]];
+                if (!next.visited && !next.deleted) {
+                    next.visited = true;
+                    next.comp = component;
+                    stack[top++] = adjacency[k];
+                }
+            }
         }
     }
 
@@ -463,7 +530,7 @@ public class IntersectionGraph {
     }
 
     private void addCopiesToPreserveDeletedEdges() {
-        helper.setup(deletedNodes);
+        helper.setup(deletedNodes, deletedIds);
 
         fillGroupComponents();
 
@@ -0,0 +1,149 @@
+package split;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// K-medoids clustering of bit vectors under the Jaccard distance, as used by the RectEuler split.
+//
+// Follows the KMedoids of scikit-learn-extra that cluster_split.py uses: medoids are seeded with k-medoids++ (the
+// first uniformly at random, every next one the best of 2 + ln(k) candidates sampled proportionally to the squared
+// distance to the closest medoid so far) and then improved by alternating between assigning every vector to its
+// closest medoid and moving every medoid to the member with the smallest total distance to its cluster. The random
+// choices come from java.util.Random, so the clusters are deterministic given the seed but not the same as those of
+// the Python implementation.
+class KMedoids {
+    private static final int MAX_ITERATIONS = 300;
+
+    private final int n;
+    private final double[][] distances;
+
+    int[] medoids;
+    int[] assignments;
+
+    // Every vector is packed into longs, 64 bits per long
+    KMedoids(long[][] vectors) {
+        this.n = vectors.length;
+        this.distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double d = jaccardDistance(vectors[i], vectors[j]);
+                distances[i][j] = d;
+                distances[j][i] = d;
+            }
+        }
+    }
+
+    static long[] pack(boolean[] vector) {
+        long[] packed = new long[(vector.length + 63) / 64];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i]) packed[i >> 6] |= 1L << (i & 63);
+        }
+        return packed;
+    }
+
+    // Fraction of the set bits of either vector that are not set in both, 0 if neither has a bit set
+    static double jaccardDistance(long[] a, long[] b) {
+        int union = 0;
+        int intersection = 0;
+        for (int w = 0; w < a.length; w++) {
+            union += Long.bitCount(a[w] | b[w]);
+            intersection += Long.bitCount(a[w] & b[w]);
+        }
+        return union == 0 ? 0 : (double) (union - intersection) / union;
+    }
+
+    void fit(int k, long seed) {
+        Random random = new Random(seed);
+        medoids = initialMedoids(k, random);
+        assignments = new int[n];
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            assign();
+
+            boolean changed = false;
+            for (int c = 0; c < k; c++) {
+                int best = medoids[c];
+                double bestCost = Double.MAX_VALUE;
+                for (int candidate = 0; candidate < n; candidate++) {
+                    if (assignments[candidate] != c) continue;
+                    double cost = 0;
+                    for (int other = 0; other < n; other++) {
+                        if (assignments[other] == c) cost += distances[candidate][other];
+                    }
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = candidate;
+                    }
+                }
+                if (best != medoids[c]) {
+                    medoids[c] = best;
+                    changed = true;
+                }
+            }
+            if (!changed) break;
+        }
+
+        assign();
+    }
+
+    // Assigns every vector to its closest medoid, the first one on ties
+    private void assign() {
+        for (int i = 0; i < n; i++) {
+            int best = 0;
+            for (int c = 1; c < medoids.length; c++) {
+                if (distances[medoids[c]][i] < distances[medoids[best]][i]) best = c;
+            }
+            assignments[i] = best;
+        }
+    }
+
+    private int[] initialMedoids(int k, Random random) {
+        int[] centers = new int[k];
+        int localTrials = 2 + (int) Math.log(k);
+
+        centers[0] = random.nextInt(n);
+        double[] closest = new double[n];
+        double potential = 0;
+        for (int i = 0; i < n; i++) {
+            closest[i] = distances[centers[0]][i] * distances[centers[0]][i];
+            potential += closest[i];
+        }
+
+        for (int c = 1; c < k; c++) {
+            double[] cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += closest[i];
+                cumulative[i] = sum;
+            }
+
+            int bestCandidate = -1;
+            double bestPotential = Double.MAX_VALUE;
+            double[] bestClosest = null;
+            for (int trial = 0; trial < localTrials; trial++) {
+                double value = random.nextDouble() * potential;
+                int candidate = Arrays.binarySearch(cumulative, value);
+                if (candidate < 0) candidate = -candidate - 1;
+                candidate = Math.min(candidate, n - 1);
+
+                double[] candidateClosest = new double[n];
+                double candidatePotential = 0;
+                for (int i = 0; i < n; i++) {
+                    double d = distances[candidate][i] * distances[candidate][i];
+                    candidateClosest[i] = Math.min(closest[i], d);
+                    candidatePotential += candidateClosest[i];
+                }
+                if (bestCandidate == -1 || candidatePotential < bestPotential) {
+                    bestCandidate = candidate;
+                    bestPotential = candidatePotential;
+                    bestClosest = candidateClosest;
+                }
+            }
+
+            centers[c] = bestCandidate;
+            potential = bestPotential;
+            closest = bestClosest;
+        }
+        return centers;
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 
 import model.StatementEntityInstance;
@@ -13,12 +14,12 @@ import model.StatementEntityInstance;
 public class SplitIntanceFactory {
     StatementEntityInstance parentInstance;
     IntersectionGraph graph;
-    ArrayList<Integer> addedStatements;
+    HashSet<Integer> addedStatements;
 
     public SplitIntanceFactory(StatementEntityInstance instance, IntersectionGraph graph) {
         this.parentInstance = instance;
         this.graph = graph;
-        this.addedStatements = new ArrayList<>();
+        this.addedStatements = new HashSet<>();
     }
 
     public ArrayList<StatementEntityInstance> createInstances() {
@@ -26,7 +27,7 @@ public class SplitIntanceFactory {
 
         for (ArrayList<Node> component : graph.components) {
             // Store all entities in this component
-            int[] entities = new int[component.size()];
+            HashSet<Integer> entities = new HashSet<>();
 
             // Store all statements in this component
             HashSet<Integer> statements = new HashSet<>();
@@ -37,7 +38,7 @@ public class SplitIntanceFactory {
             for (int i = 0; i < component.size(); i++) {
                 // Add each entity
                 Node ent = component.get(i);
-                entities[i] = ent.id;
+                entities.add(ent.id);
 
                 // For non deleted nodes get their statements from the instance
                 if (!ent.deleted) {
@@ -69,11 +70,8 @@ public class SplitIntanceFactory {
             // Add to global statement list for this class
             addedStatements.addAll(statements);
 
-            // Create statement array
-            int[] stArr = statements.stream().mapToInt(Integer::intValue).toArray();
-
-            // Create instance
-            StatementEntityInstance inst = new StatementEntityInstance(entities, stArr, entToSt, parentInstance);
+            // Create instance, as a view on the parent instance
+            StatementEntityInstance inst = new StatementEntityInstance(parentInstance, entities, statements, entToSt);
             result.add(inst);
         }
 
@@ -97,6 +95,9 @@ public class SplitIntanceFactory {
     }
 
     private void addSharedStatementsBetweenDeletedNodes(ArrayList<StatementEntityInstance> result) {
+        // Statements added per instance and entity, appended to the arrays of the instances at the end
+        HashMap<StatementEntityInstance, HashMap<Integer, ArrayList<Integer>>> added = new LinkedHashMap<>();
+
         for (DeletedNodeGroup group : graph.helper.groups) {
             for (Integer statementId : group.statements) {
                 if (!addedStatements.contains(statementId)) {
@@ -110,17 +111,29 @@ public class SplitIntanceFactory {
                     smallestInstance.numberOfStatements = smallestInstance.statements.keySet().size();
 
                     for (Integer entity : group.entities) {
-                        int[] currentStatements = smallestInstance.entityIndToStatements.get(entity);
+                        added.computeIfAbsent(smallestInstance, k -> new HashMap<>())
+                                .computeIfAbsent(entity, k -> new ArrayList<>()).add(statementId);
+                    }
+                }
+            }
+        }
 
-                        int[] updatedStatements = Arrays.copyOf(currentStatements, currentStatements.length + 1);
-                        updatedStatements[currentStatements.length] = statementId;
+        for (var instanceEntry : added.entrySet()) {
+            StatementEntityInstance inst = instanceEntry.getKey();
+            for (var entityEntry : instanceEntry.getValue().entrySet()) {
+                int[] currentStatements = inst.entityIndToStatements.get(entityEntry.getKey());
+                ArrayList<Integer> newStatements = entityEntry.getValue();
 
-                        // Replace the old (shared) array in the instance's statement-entity map with
-                        // the combined array
-                        smallestInstance.entityIndToStatements.put(entity, updatedStatements);
-                    }
+                int[] updatedStatements = Arrays.copyOf(currentStatements, currentStatements.length + newStatements.size());
+                for (int i = 0; i < newStatements.size(); i++) {
+                    updatedStatements[currentStatements.length + i] = newStatements.get(i);
                 }
+
+                // Replace the old (shared) array in the instance's statement-entity map with
+                // the combined array
+                inst.entityIndToStatements.put(entityEntry.getKey(), updatedStatements);
             }
+            inst.invalidateIncidence();
         }
     }
 
@@ -143,17 +156,10 @@ public class SplitIntanceFactory {
             // Find the current smallest instance
             StatementEntityInstance smallestInstance = findSmallestInstance(result);
 
-            // Create a map of the statements unique to this deleted node
-            HashMap<Integer, String> uniqueStatementMap = new HashMap<>();
-
-            // Fill the map
+            // Add the statements unique to this deleted node to the smallest instance
             for (Integer statementId : node.uniqueStatements) {
-                String text = parentInstance.statements.get(statementId);
-                uniqueStatementMap.put(statementId, text);
+                smallestInstance.statements.put(statementId, parentInstance.statements.get(statementId));
             }
-
-            // Add the statements from the map to the smallest instance
-            smallestInstance.statements.putAll(uniqueStatementMap);
             smallestInstance.numberOfStatements = smallestInstance.statements.keySet().size();
 
             // Get arrays for the unique and shared statements of this node
@@ -172,6 +178,7 @@ public class SplitIntanceFactory {
             // Replace the old (shared) array in the instance's statement-entity map with
             // the combined array
             smallestInstance.entityIndToStatements.put(node.id, combinedArr);
+            smallestInstance.invalidateIncidence();
         }
     }
 
@@ -216,6 +223,7 @@ public class SplitIntanceFactory {
 
             // Update the number of entities
             inst.numberOfEntities = inst.entities.keySet().size();
+            inst.invalidateIncidence();
         }
     }
 
@@ -241,7 +249,7 @@ public class SplitIntanceFactory {
         // Get all statements of this node
         int[] allStatements = parentInstance.entityIndToStatements.get(node.id);
         // Get only statements shared with another entity
-        ArrayList<Integer> sharedStatements = new ArrayList<>();
+        HashSet<Integer> sharedStatements = new HashSet<>();
         for (ArrayList<Node> component : graph.components) {
             sharedStatements.addAll(findSharedStatements(node, component, true));
         }